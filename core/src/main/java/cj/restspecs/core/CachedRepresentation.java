@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.core;
+
+import cj.restspecs.core.io.BufferLoader;
+import cj.restspecs.core.io.Loader;
+import cj.restspecs.core.io.MetadataLoader;
+import cj.restspecs.core.model.Representation;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+class CachedRepresentation implements Representation {
+    private final String contentType;
+    private final String inlineText;
+    private final String resourcePath;
+    private final Loader loader;
+    private final RepresentationCache cache;
+    private volatile ByteBuffer inlineBytes;
+
+    private CachedRepresentation(String contentType, String inlineText, String resourcePath, Loader loader, RepresentationCache cache) {
+        this.contentType = contentType;
+        this.inlineText = inlineText;
+        this.resourcePath = resourcePath;
+        this.loader = loader;
+        this.cache = cache;
+    }
+
+    static CachedRepresentation inline(String contentType, String text) {
+        return new CachedRepresentation(contentType, text, null, null, null);
+    }
+
+    static CachedRepresentation reference(String contentType, String resourcePath, Loader loader, RepresentationCache cache) {
+        return new CachedRepresentation(contentType, null, resourcePath, loader, cache);
+    }
+
+    String resourcePath() {
+        return resourcePath;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public InputStream data() {
+        ByteBuffer buffer = byteBuffer();
+        return buffer == null ? null : new ByteBufferInputStream(buffer);
+    }
+
+    public ByteBuffer byteBuffer() {
+        if (inlineText != null) {
+            ByteBuffer bytes = inlineBytes;
+            if (bytes == null) {
+                bytes = ByteBuffer.wrap(inlineText.getBytes(Charset.defaultCharset())).asReadOnlyBuffer();
+                inlineBytes = bytes;
+            }
+            return bytes.duplicate();
+        }
+
+        ByteBuffer bytes = cache.get(this, new RepresentationCache.Source() {
+            public ByteBuffer load() {
+                return read();
+            }
+        });
+        return bytes == null ? null : bytes.duplicate();
+    }
+
+    public long size() {
+        if (inlineText != null) {
+            return byteBuffer().remaining();
+        }
+        return loader instanceof MetadataLoader ? ((MetadataLoader) loader).size(resourcePath) : -1;
+    }
+
+    private ByteBuffer read() {
+        if (loader instanceof BufferLoader) {
+            return ((BufferLoader) loader).loadBuffer(resourcePath);
+        }
+
+        InputStream in = loader.load(resourcePath);
+        if (in == null) {
+            return null;
+        }
+        try {
+            try {
+                return ByteBuffer.wrap(IOUtils.toByteArray(in)).asReadOnlyBuffer();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + resourcePath, e);
+        }
+    }
+
+    public String asText() {
+        String textRepresentation;
+        if (inlineText != null) {
+            textRepresentation = inlineText;
+        } else {
+            ByteBuffer buffer = byteBuffer();
+            if (buffer == null) {
+                return null;
+            }
+            textRepresentation = Charset.defaultCharset().decode(buffer).toString();
+        }
+        return textRepresentation.replace("\n$", "");        //remove newline from last line of response spec
+    }
+
+    static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.core;
+
+import cj.restspecs.core.model.Header;
+import cj.restspecs.core.model.Representation;
+import cj.restspecs.core.model.Request;
+import cj.restspecs.core.model.Response;
+
+import java.util.List;
+
+/**
+ * An immutable, fully decomposed view of a {@link RestSpec}, safe to share between threads.
+ * Everything a request matcher or validator needs is computed once, when the spec is compiled.
+ *
+ * @see RestSpec#compile()
+ */
+public final class CompiledRestSpec {
+    private final RestSpec spec;
+    private final String method;
+    private final String path;
+    private final String queryString;
+    private final List<String> pathSegments;
+    private final RestSpec.QueryParameters queryParameters;
+    private final Header requestHeader;
+    private final Representation requestRepresentation;
+    private final int statusCode;
+    private final Header responseHeader;
+    private final Representation responseRepresentation;
+
+    CompiledRestSpec(RestSpec spec) {
+        Request request = spec.request();
+        Response response = spec.response();
+
+        this.spec = spec;
+        this.method = request.method();
+        this.path = spec.pathMinusQueryStringAndFragment();
+        this.queryString = spec.queryString();
+        this.pathSegments = spec.getPathSegments();
+        this.queryParameters = spec.queryParameters();
+        this.requestHeader = request.header();
+        this.requestRepresentation = request.representation();
+        this.statusCode = response.statusCode();
+        this.responseHeader = response.header();
+        this.responseRepresentation = response.representation();
+    }
+
+    public RestSpec spec() {
+        return spec;
+    }
+
+    public String name() {
+        return spec.name();
+    }
+
+    /**
+     * The url exactly as written in the spec, placeholders and all.
+     */
+    public String url() {
+        return spec.path();
+    }
+
+    public String method() {
+        return method;
+    }
+
+    /**
+     * The url with replacements applied, minus the query string.
+     */
+    public String path() {
+        return path;
+    }
+
+    public String queryString() {
+        return queryString;
+    }
+
+    public List<String> pathSegments() {
+        return pathSegments;
+    }
+
+    public RestSpec.QueryParameters queryParameters() {
+        return queryParameters;
+    }
+
+    public Header requestHeader() {
+        return requestHeader;
+    }
+
+    public Representation requestRepresentation() {
+        return requestRepresentation;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+
+    public Header responseHeader() {
+        return responseHeader;
+    }
+
+    public Representation responseRepresentation() {
+        return responseRepresentation;
+    }
+}
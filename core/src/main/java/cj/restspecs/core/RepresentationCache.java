@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.core;
+
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Holds the contents of 'representation-ref' files once they have been read, so that repeated
+ * calls to {@link cj.restspecs.core.model.Representation#data()} and friends don't go back to
+ * the {@link cj.restspecs.core.io.Loader}.  Entries are keyed by representation instance.
+ */
+public abstract class RepresentationCache {
+    private static final RepresentationCache DEFAULT = softReferences();
+
+    interface Source {
+        ByteBuffer load();
+    }
+
+    RepresentationCache() {
+    }
+
+    abstract ByteBuffer get(Object key, Source source);
+
+    /**
+     * The number of representations currently held.
+     */
+    public abstract int size();
+
+    /**
+     * The number of heap bytes currently held, where the policy keeps track of it; otherwise -1.
+     */
+    public abstract long bytes();
+
+    public abstract void clear();
+
+    /**
+     * The cache used by specs that weren't given one: soft references, which the garbage
+     * collector is free to clear when memory runs low.
+     */
+    public static RepresentationCache defaultCache() {
+        return DEFAULT;
+    }
+
+    public static RepresentationCache softReferences() {
+        return new SoftReferenceCache();
+    }
+
+    /**
+     * Keeps the most recently used representations, up to a total of maxBytes.  A single
+     * representation larger than that is never held.
+     */
+    public static RepresentationCache lru(long maxBytes) {
+        return new LruCache(maxBytes);
+    }
+
+    /**
+     * Holds nothing; every read goes back to the loader.
+     */
+    public static RepresentationCache none() {
+        return new LruCache(0);
+    }
+
+    static long weigh(ByteBuffer buffer) {
+        return buffer.isDirect() ? 0 : buffer.capacity();
+    }
+
+    private static class SoftReferenceCache extends RepresentationCache {
+        private final Map<Object, SoftReference<ByteBuffer>> entries = new WeakHashMap<Object, SoftReference<ByteBuffer>>();
+
+        ByteBuffer get(Object key, Source source) {
+            synchronized (this) {
+                SoftReference<ByteBuffer> reference = entries.get(key);
+                ByteBuffer cached = reference == null ? null : reference.get();
+                if (cached != null) {
+                    return cached;
+                }
+            }
+
+            ByteBuffer loaded = source.load();
+            if (loaded != null) {
+                synchronized (this) {
+                    entries.put(key, new SoftReference<ByteBuffer>(loaded));
+                }
+            }
+            return loaded;
+        }
+
+        public synchronized int size() {
+            return entries.size();
+        }
+
+        public long bytes() {
+            return -1;
+        }
+
+        public synchronized void clear() {
+            entries.clear();
+        }
+    }
+
+    private static class LruCache extends RepresentationCache {
+        private final long maxBytes;
+        private final LinkedHashMap<Object, ByteBuffer> entries = new LinkedHashMap<Object, ByteBuffer>(16, 0.75f, true);
+        private long bytes;
+
+        LruCache(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        ByteBuffer get(Object key, Source source) {
+            synchronized (this) {
+                ByteBuffer cached = entries.get(key);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+
+            ByteBuffer loaded = source.load();
+            if (loaded != null && maxBytes > 0 && weigh(loaded) <= maxBytes) {
+                synchronized (this) {
+                    ByteBuffer previous = entries.put(key, loaded);
+                    if (previous != null) {
+                        bytes -= weigh(previous);
+                    }
+                    bytes += weigh(loaded);
+                    evictDownTo(maxBytes);
+                }
+            }
+            return loaded;
+        }
+
+        private void evictDownTo(long limit) {
+            Iterator<ByteBuffer> eldestFirst = entries.values().iterator();
+            while (bytes > limit && eldestFirst.hasNext()) {
+                bytes -= weigh(eldestFirst.next());
+                eldestFirst.remove();
+            }
+        }
+
+        public synchronized int size() {
+            return entries.size();
+        }
+
+        public synchronized long bytes() {
+            return bytes;
+        }
+
+        public synchronized void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+}
@@ -44,32 +44,46 @@ import cj.restspecs.core.model.Representation;
 import cj.restspecs.core.model.Request;
 import cj.restspecs.core.model.Response;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.io.IOUtils;
 
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.*;
 
 public class RestSpec {
-    private JsonNode root;
+    private final JsonNode requestNode, responseNode;
     private final String name, url;
     private final Loader loader;
-    private final Map<String, Object> replacements;
+    private final UrlTemplate template;
+    private final Object[] boundValues;
+    private final Map<String, Object> textualReplacements;
+    private final String replacedPath, pathMinusQueryString, queryString;
+    private final List<String> pathSegments;
     private final QueryParameters queryParameters;
+    private final Request request;
+    private final Response response;
+    private volatile CompiledRestSpec compiled;
 
-    private RestSpec(RestSpec originalSpec, Map<String, Object> replacements) {
-        this.root = originalSpec.root;
+    private RestSpec(RestSpec originalSpec, Object[] boundValues, Map<String, Object> textualReplacements) {
+        this.requestNode = originalSpec.requestNode;
+        this.responseNode = originalSpec.responseNode;
         this.name = originalSpec.name;
         this.url = originalSpec.url;
         this.loader = originalSpec.loader;
+        this.pathSegments = originalSpec.pathSegments;
+        this.request = originalSpec.request;
+        this.response = originalSpec.response;
 
-        this.replacements = new HashMap<String, Object>();
-        this.replacements.putAll(originalSpec.replacements);
-        this.replacements.putAll(replacements);
-        this.queryParameters = new QueryParameters(queryString());
+        this.template = originalSpec.template;
+        this.boundValues = boundValues;
+        this.textualReplacements = textualReplacements;
+
+        this.replacedPath = textualReplacements.isEmpty() ? template.render(boundValues) : replaceTextually();
+        this.pathMinusQueryString = pathPartOf(replacedPath);
+        this.queryString = queryPartOf(replacedPath);
+        this.queryParameters = queryString.equals(originalSpec.queryString)
+                ? originalSpec.queryParameters
+                : QueryParameters.parse(queryString);
     }
 
     public RestSpec(String specName) {
@@ -77,53 +91,55 @@ public class RestSpec {
     }
 
     public RestSpec(String specName, Loader loader) {
+        this(specName, loader, RepresentationCache.defaultCache());
+    }
+
+    public RestSpec(String specName, Loader loader, RepresentationCache representationCache) {
+        this(load(specName, loader), loader, representationCache);
+    }
+
+    RestSpec(SpecParser.ParsedSpec parsed, Loader loader, RepresentationCache representationCache) {
         this.loader = loader;
-        this.replacements = new HashMap<String, Object>();
+        this.requestNode = parsed.request;
+        this.responseNode = parsed.response;
+        this.name = parsed.name;
+        this.url = parsed.url;
+
+        this.request = requestNode.isMissingNode() ? null : new RequestFromRestSpec(requestNode, loader, representationCache);
+        this.response = responseNode.isMissingNode() ? null : new ResponseFromRestSpec(responseNode, loader, representationCache);
+
+        this.template = UrlTemplate.compile(url);
+        this.boundValues = new Object[template.placeholders().size()];
+        this.textualReplacements = Collections.emptyMap();
 
+        this.pathSegments = splitIntoSegments(url);
+        this.replacedPath = url;
+        this.pathMinusQueryString = pathPartOf(replacedPath);
+        this.queryString = queryPartOf(replacedPath);
+        this.queryParameters = QueryParameters.parse(queryString);
+    }
+
+    static SpecParser.ParsedSpec load(String specName, Loader loader) {
         InputStream is = loader.load(specName);
         if (is == null) {
             throw new RuntimeException("Could not find file named " + specName);
         }
+        return SpecParser.parse(is);
+    }
 
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            root = mapper.readValue(is, JsonNode.class);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-
-        name = root.path("name").asText();
-        url = root.path("url").asText();
+    private static String pathPartOf(String replacedUrl) {
+        int delimiterPos = replacedUrl.indexOf('?');
+        return delimiterPos > -1 ? replacedUrl.substring(0, delimiterPos) : replacedUrl;
+    }
 
-        if (url == null || url.isEmpty()) {
-            throw new RuntimeException("Spec is missing a 'url'");
-        }
+    private static String queryPartOf(String replacedUrl) {
+        int delimiterPos = replacedUrl.indexOf('?');
+        return delimiterPos > -1 ? replacedUrl.substring(delimiterPos) : "";
+    }
 
-        blowUpIfThereAreFieldsBesidesThese(root, Arrays.asList(
-                "name",
-                "domain",
-                "dependency-scope",
-                "url",
-                "request",
-                "response"
-        ));
-        blowUpIfThereAreFieldsBesidesThese(root.path("response"), Arrays.asList(
-                "statusCode",
-                "header",
-                "representation",
-                "representation-ref"
-        ));
-        queryParameters = new QueryParameters(queryString());
-    }
-
-    private void blowUpIfThereAreFieldsBesidesThese(JsonNode root, List<String> allowedNodes) {
-        Iterator<String> fields = root.fieldNames();
-        while (fields.hasNext()) {
-            String field = fields.next();
-            if (!allowedNodes.contains(field)) {
-                throw new RuntimeException("Field '" + field + "' is not allowed");
-            }
-        }
+    private static List<String> splitIntoSegments(String url) {
+        List<String> segments = Arrays.asList(url.split("[/?#.]"));
+        return Collections.unmodifiableList(new ArrayList<String>(segments.subList(1, segments.size())));
     }
 
     public String name() {
@@ -131,61 +147,96 @@ public class RestSpec {
     }
 
     public String pathMinusQueryStringAndFragment() {
-        return parseUrl()[0];
+        return pathMinusQueryString;
     }
 
-    private String[] parseUrl() {
-        String replacedUrl = replacedPath();
-        int delimiterPos = replacedUrl.indexOf('?');
+    public List<String> getPathSegments() {
+        return pathSegments;
+    }
+
+    public static class QueryParameters {
+        private static final QueryParameters NONE = new QueryParameters(
+                Collections.<String>emptyList(), Collections.<String, List<String>>emptyMap());
 
-        String path = replacedUrl;
-        String queryString = "";
+        private final List<String> namesInOrder;
+        private final Map<String, List<String>> memoizedQueryParameters;
 
-        if (delimiterPos > -1) {
-            path = replacedUrl.substring(0, delimiterPos);
-            queryString = replacedUrl.substring(delimiterPos);
+        private QueryParameters(List<String> namesInOrder, Map<String, List<String>> memoizedQueryParameters) {
+            this.namesInOrder = namesInOrder;
+            this.memoizedQueryParameters = memoizedQueryParameters;
         }
 
-        return new String[] {
-            path,
-            queryString
-        };
-    }
+        /**
+         * Parses a query string as it appears in a url, including the leading question mark.
+         */
+        public static QueryParameters parse(String queryString) {
+            if ("".equals(queryString)) {
+                return NONE;
+            }
 
-    public List<String> getPathSegments() {
-        List<String> segments = Arrays.asList(path().split("[/?#.]"));
-        return segments.subList(1, segments.size());
-    }
+            int end = queryString.length();
+            while (end > 1 && queryString.charAt(end - 1) == '&') {
+                end--;
+            }
+            if (end == 1 && queryString.length() > 1) {
+                return NONE;
+            }
 
-    public class QueryParameters {
-        private final List<String> namesInOrder;
-        private final Map<String, List<String>> memoizedQueryParameters;
+            List<String> names = new ArrayList<String>();
+            Map<String, List<String>> parameters = new HashMap<String, List<String>>();
+
+            int start = 1;
+            while (start <= end) {
+                int parameterEnd = queryString.indexOf('&', start);
+                if (parameterEnd == -1 || parameterEnd > end) {
+                    parameterEnd = end;
+                }
+
+                int keyEnd = indexOf('=', queryString, start, parameterEnd);
+                String key;
+                String value = "";
+                if (keyEnd == -1) {
+                    key = decode(queryString, start, parameterEnd);
+                } else {
+                    key = decode(queryString, start, keyEnd);
+                    int valueEnd = indexOf('=', queryString, keyEnd + 1, parameterEnd);
+                    value = decode(queryString, keyEnd + 1, valueEnd == -1 ? parameterEnd : valueEnd);
+                }
 
-        private QueryParameters(String queryString) {
-            namesInOrder = new ArrayList<String>();
-            memoizedQueryParameters = new HashMap<String, List<String>>();
-
-            if (!"".equals(queryString)) {
-                String queryWithoutInitialDelimiter = queryString.substring(1);
-                String[] parameters = queryWithoutInitialDelimiter.split("&");
-                for (String parameter : parameters) {
-                    String[] pair = parameter.split("=");
-                    String key = decodeUrlString(pair[0]);
-                    String value = "";
-                    if (pair.length > 1) {
-                        value = decodeUrlString(pair[1]);
-                    }
-
-                    if (!memoizedQueryParameters.containsKey(key)) {
-                        memoizedQueryParameters.put(key, new ArrayList<String>());
-                        namesInOrder.add(key);
-                    }
-
-                    List<String> values;
-                    values = memoizedQueryParameters.get(key);
-                    values.add(value);
+                List<String> values = parameters.get(key);
+                if (values == null) {
+                    values = new ArrayList<String>(1);
+                    parameters.put(key, values);
+                    names.add(key);
+                }
+                values.add(value);
+
+                start = parameterEnd + 1;
+            }
+
+            for (Map.Entry<String, List<String>> entry : parameters.entrySet()) {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
+            return new QueryParameters(Collections.unmodifiableList(names), parameters);
+        }
+
+        private static int indexOf(char c, String text, int start, int end) {
+            for (int x = start; x < end; x++) {
+                if (text.charAt(x) == c) {
+                    return x;
+                }
+            }
+            return -1;
+        }
+
+        private static String decode(String text, int start, int end) {
+            for (int x = start; x < end; x++) {
+                char c = text.charAt(x);
+                if (c == '%' || c == '+') {
+                    return decodeUrlString(text.substring(start, end));
                 }
             }
+            return text.substring(start, end);
         }
 
         public List<String> names() {
@@ -197,8 +248,9 @@ public class RestSpec {
         }
 
         public List<String> values(String name) {
-            if (memoizedQueryParameters.containsKey(name)) {
-                return memoizedQueryParameters.get(name);
+            List<String> values = memoizedQueryParameters.get(name);
+            if (values != null) {
+                return values;
             } else {
                 String parameterNotFoundMessage = String.format("Parameter name '%s' not found in specification.", name);
                 throw new RuntimeException(parameterNotFoundMessage);
@@ -206,7 +258,7 @@ public class RestSpec {
         }
     }
 
-    private String decodeUrlString(String input) {
+    private static String decodeUrlString(String input) {
         try {
             String result;
             result = URLDecoder.decode(input, "UTF-8");
@@ -253,19 +305,29 @@ public class RestSpec {
     }
 
     public String queryString() {
-        return parseUrl()[1];
+        return queryString;
     }
 
     public String path() {
         return url;
     }
 
-    public String getPathReplacedWith(Map<String, ?> replacements) {
-        String urlWithReplacedValues = url;
-        for (Map.Entry<String, ?> entry : replacements.entrySet()) {
-            urlWithReplacedValues = urlWithReplacedValues.replace(entry.getKey().toString(), entry.getValue().toString());
+    private String replaceTextually() {
+        Map<String, Object> replacements = new HashMap<String, Object>(textualReplacements);
+        for (int x = 0; x < boundValues.length; x++) {
+            if (boundValues[x] != null) {
+                replacements.put(template.placeholders().get(x), boundValues[x]);
+            }
         }
-        return urlWithReplacedValues;
+        return UrlTemplate.replaceTextually(url, replacements);
+    }
+
+    public UrlTemplate urlTemplate() {
+        return template;
+    }
+
+    public String getPathReplacedWith(Map<String, ?> replacements) {
+        return template.render(replacements);
     }
 
     public String getPathReplacedWith(String firstKey, Object firstValue, Object ... moreKeysAndValues) {
@@ -298,25 +360,41 @@ public class RestSpec {
     }
 
     public Request request() {
-        return new RequestFromRestSpec(root, loader);
+        if (request == null) {
+            throw new RuntimeException("Spec is missing a 'request'");
+        }
+        return request;
     }
 
     public Response response() {
-        final JsonNode responseNode = root.path("response");
-        if (responseNode.isMissingNode()) {
+        if (response == null) {
             throw new RuntimeException("Spec is missing a 'response'");
         }
+        return response;
+    }
 
-        return new ResponseFromRestSpec(responseNode, loader);
+    public CompiledRestSpec compile() {
+        CompiledRestSpec result = compiled;
+        if (result == null) {
+            result = new CompiledRestSpec(this);
+            compiled = result;
+        }
+        return result;
     }
 
     public RestSpec withParameter(String parameterName, Object parameterValue) {
-        if (url.contains(parameterName)) {
-            HashMap<String, Object> replacements;
-            replacements = new HashMap<String, Object>();
+        int index = template.indexOf(parameterName);
+        if (index > -1 && parameterValue != null) {
+            Object[] values = boundValues.clone();
+            values[index] = parameterValue;
+
+            return new RestSpec(this, values, textualReplacements);
+        } else if (url.contains(parameterName)) {
+            Map<String, Object> replacements;
+            replacements = new HashMap<String, Object>(textualReplacements);
             replacements.put(parameterName, parameterValue);
 
-            return new RestSpec(this, replacements);
+            return new RestSpec(this, boundValues, replacements);
         } else {
             String message = String.format("%s does not exist in url", parameterName);
             throw new RuntimeException(message);
@@ -324,92 +402,89 @@ public class RestSpec {
     }
 
     public String replacedPath() {
-        return getPathReplacedWith(replacements);
+        return replacedPath;
     }
 }
 
 class HeaderImpl implements Header {
-    JsonNode headerNode;
+    private final List<String> fieldNames;
+    private final Map<String, List<String>> fieldsByName;
+    private final Map<String, List<String>> fieldsByLowerCaseName;
 
     HeaderImpl(JsonNode headerNode) {
-        this.headerNode = headerNode;
-    }
-
-    public List<String> fieldNames() {
+        List<String> names = new ArrayList<String>();
+        Map<String, List<String>> byLowerCaseName = new HashMap<String, List<String>>();
 
-        List<String> results = new ArrayList<String>();
-        Iterator<String> names = headerNode.fieldNames();
-        while (names.hasNext()) {
-            results.add(names.next());
-        }
-        return results;
-    }
-
-    public List<String> fieldsNamed(String name) {
-        List<String> results = new ArrayList<String>();
         final Iterator<Map.Entry<String, JsonNode>> items = headerNode.fields();
         while (items.hasNext()) {
             Map.Entry<String, JsonNode> field = items.next();
-            if (field.getKey().equals(name)) {
-                results.add(field.getValue().asText());
+
+            // names differing only in case are one field, listed once under its first spelling
+            String lowerCaseName = field.getKey().toLowerCase(Locale.ENGLISH);
+            List<String> values = byLowerCaseName.get(lowerCaseName);
+            if (values == null) {
+                names.add(field.getKey());
+                values = new ArrayList<String>(1);
+                byLowerCaseName.put(lowerCaseName, values);
             }
+            values.add(field.getValue().asText());
         }
-        return results;
-    }
-}
 
-//helpers
-class RepresentationFactory {
-    static Representation createRepresentation(final JsonNode node, final Loader loader, final String contentType) {
+        for (Map.Entry<String, List<String>> entry : byLowerCaseName.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
 
-        if (node.path("representation").isMissingNode() && node.path("representation-ref").isMissingNode()) {
-            return null;
+        Map<String, List<String>> byName = new HashMap<String, List<String>>();
+        for (String name : names) {
+            byName.put(name, byLowerCaseName.get(name.toLowerCase(Locale.ENGLISH)));
         }
 
-        return new Representation() {
-            public String contentType() {
-                return contentType;
-            }
+        this.fieldNames = Collections.unmodifiableList(names);
+        this.fieldsByName = byName;
+        this.fieldsByLowerCaseName = byLowerCaseName;
+    }
 
-            public InputStream data() {
+    public List<String> fieldNames() {
+        return fieldNames;
+    }
 
-                JsonNode representation = node.path("representation");
-                if (!representation.isMissingNode()) {
-                    return IOUtils.toInputStream(representation.asText());
-                }
-                JsonNode repRef = node.path("representation-ref");
-                if (!repRef.isMissingNode()) {
-                    String resourcePath = repRef.asText();
-                    return loader.load(resourcePath);
-                }
-                throw new IllegalStateException("rest spec does not have representation or representation-ref response node");
-            }
+    public List<String> fieldsNamed(String name) {
+        List<String> values = fieldsByName.get(name);
+        if (values == null) {
+            values = fieldsByLowerCaseName.get(name.toLowerCase(Locale.ENGLISH));
+        }
+        return values == null ? Collections.<String>emptyList() : values;
+    }
+}
 
-            public String asText() {
-                try {
-                    String textRepresentation = IOUtils.toString(data());
-                    textRepresentation = textRepresentation.replaceAll("\n\\$", "");        //remove newline from last line of response spec
-                    return textRepresentation;
-                } catch (IOException ioe) {  /*can't do that*/ }
-                return null;
-            }
-        };
+//helpers
+class RepresentationFactory {
+    static Representation createRepresentation(final JsonNode node, final Loader loader, final RepresentationCache cache, final String contentType) {
+        JsonNode representation = node.path("representation");
+        if (!representation.isMissingNode()) {
+            return CachedRepresentation.inline(contentType, representation.asText());
+        }
+        JsonNode repRef = node.path("representation-ref");
+        if (!repRef.isMissingNode()) {
+            return CachedRepresentation.reference(contentType, repRef.asText(), loader, cache);
+        }
+        return null;
     }
 }
 
 class RequestFromRestSpec implements Request {
     private final JsonNode requestNode;
-    private final Loader loader;
     private final Header theHeader;
+    private final Representation theRepresentation;
 
-    RequestFromRestSpec(JsonNode root, Loader loader) {
-        this.requestNode = root.path("request");
+    RequestFromRestSpec(JsonNode requestNode, Loader loader, RepresentationCache representationCache) {
+        this.requestNode = requestNode;
         if (this.requestNode.isMissingNode()) {
             throw new RuntimeException("Spec is missing a 'request'");
         }
 
-        this.loader = loader;
         this.theHeader = new HeaderImpl(requestNode.path("header"));
+        this.theRepresentation = RepresentationFactory.createRepresentation(requestNode, loader, representationCache, "");
     }
 
     public String method() {
@@ -421,7 +496,7 @@ class RequestFromRestSpec implements Request {
     }
 
     public Representation representation() {
-        return RepresentationFactory.createRepresentation(requestNode, loader, "");
+        return theRepresentation;
     }
 
     public Header header() {
@@ -430,21 +505,23 @@ class RequestFromRestSpec implements Request {
 }
 
 class ResponseFromRestSpec implements Response {
-    private final Loader loader;
-    private final JsonNode responseNode;
+    private final int statusCode;
     private final Header theHeader;
+    private final Representation theRepresentation;
 
-    public ResponseFromRestSpec(JsonNode responseNode, Loader loader) {
-        this.loader = loader;
-        this.responseNode = responseNode;
+    public ResponseFromRestSpec(JsonNode responseNode, Loader loader, RepresentationCache representationCache) {
+        this.statusCode = responseNode.path("statusCode").intValue();
         this.theHeader = new HeaderImpl(responseNode.path("header"));
+
+        String contentType = nthOrElse(0, "", theHeader.fieldsNamed("Content-Type"));
+        this.theRepresentation = RepresentationFactory.createRepresentation(responseNode, loader, representationCache, contentType);
     }
 
     public int statusCode() {
-        return responseNode.path("statusCode").intValue();
+        return statusCode;
     }
 
-    private <T> T nthOrElse(int n, T defaultValue, List<T> list) {
+    private static <T> T nthOrElse(int n, T defaultValue, List<T> list) {
         if (list.size() > 0) {
             return list.get(n);
         } else {
@@ -453,16 +530,10 @@ class ResponseFromRestSpec implements Response {
     }
 
     public Representation representation() {
-        if (responseNode.path("representation").isMissingNode() && responseNode.path("representation-ref").isMissingNode()) {
-            return null;
-        }
-
-        String contentType = nthOrElse(0, "", theHeader.fieldsNamed("Content-Type"));
-
-        return RepresentationFactory.createRepresentation(responseNode, loader, contentType);
+        return theRepresentation;
     }
 
     public Header header() {
         return theHeader;
     }
-}
\ No newline at end of file
+}
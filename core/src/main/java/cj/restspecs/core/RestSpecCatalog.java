@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import cj.restspecs.core.io.ClasspathLoader;
+import cj.restspecs.core.io.Loader;
+
+/**
+ * A 'restspecs.rs' catalog, as written by the maven plugin: one spec path per line.
+ */
+public class RestSpecCatalog {
+    private final List<String> specNames;
+    private final Loader loader;
+
+    public RestSpecCatalog(List<String> specNames, Loader loader) {
+        this.specNames = Collections.unmodifiableList(new ArrayList<String>(specNames));
+        this.loader = loader;
+    }
+
+    public static RestSpecCatalog read(String catalogName) {
+        return read(catalogName, new ClasspathLoader());
+    }
+
+    public static RestSpecCatalog read(String catalogName, Loader loader) {
+        InputStream in = loader.load(catalogName);
+        if (in == null) {
+            throw new RuntimeException("Could not find catalog named " + catalogName);
+        }
+        try {
+            try {
+                List<String> names = new ArrayList<String>();
+                BufferedReader lines = new BufferedReader(new InputStreamReader(in, Charset.defaultCharset()));
+                for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+                    String name = line.trim();
+                    if (!name.isEmpty()) {
+                        names.add(name);
+                    }
+                }
+                return new RestSpecCatalog(names, loader);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read catalog named " + catalogName, e);
+        }
+    }
+
+    public List<String> specNames() {
+        return specNames;
+    }
+
+    public List<RestSpec> specs() {
+        List<RestSpec> specs = new ArrayList<RestSpec>(specNames.size());
+        for (String name : specNames) {
+            specs.add(new RestSpec(name, loader));
+        }
+        return specs;
+    }
+}
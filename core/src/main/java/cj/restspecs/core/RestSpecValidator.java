@@ -38,18 +38,35 @@
 package cj.restspecs.core;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import cj.restspecs.core.io.ClasspathLoader;
+import cj.restspecs.core.io.FilesystemLoader;
 import cj.restspecs.core.io.Loader;
+import cj.restspecs.core.io.MetadataLoader;
+import cj.restspecs.core.model.Header;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class RestSpecValidator {
     public static class FileScanningResult {
@@ -63,7 +80,16 @@ public class RestSpecValidator {
     }
 
     public static FileScanningResult scan(File resourcesDir) {
-        List<Path> allFiles = flatListFiles(new Path(), resourcesDir, new ArrayList<Path>());
+        return scan(resourcesDir, Collections.<String>emptyList());
+    }
+
+    /**
+     * Lists every regular file under resourcesDir, sorted by path.  Directories named in
+     * excludes are pruned while walking; excluded files are still listed.
+     */
+    public static FileScanningResult scan(File resourcesDir, List<String> excludes) {
+        List<Path> allFiles = walk(resourcesDir, excludes);
+        Collections.sort(allFiles, ALPHABETICALLY);
         List<Path> specDotJsFiles = minusNonSpecFiles(allFiles);
         return new FileScanningResult(allFiles, specDotJsFiles);
     }
@@ -71,9 +97,16 @@ public class RestSpecValidator {
     private final File resourcesDir;
     private final Loader loader;
     private final PrintStream console;
+    private final ForkJoinPool pool;
+    private final boolean routeConflictsAreErrors;
 
     public static void main(String[] args) {
-        new RestSpecValidator(new File(args[0])).validate();
+        if (args.length == 2 && args[0].equals("--watch")) {
+            File dir = new File(args[1]);
+            new RestSpecWatcher(new RestSpecValidator(dir, new FilesystemLoader(dir), System.out), Collections.<String>emptyList()).run();
+        } else {
+            new RestSpecValidator(new File(args[0])).validate();
+        }
     }
 
     public RestSpecValidator(File resourcesDir) {
@@ -81,9 +114,35 @@ public class RestSpecValidator {
     }
 
     public RestSpecValidator(File resourcesDir, Loader loader, PrintStream console) {
+        this(resourcesDir, loader, console, ForkJoinPool.commonPool());
+    }
+
+    public RestSpecValidator(File resourcesDir, Loader loader, PrintStream console, ForkJoinPool pool) {
+        this(resourcesDir, loader, console, pool, false);
+    }
+
+    private RestSpecValidator(File resourcesDir, Loader loader, PrintStream console, ForkJoinPool pool, boolean routeConflictsAreErrors) {
         this.resourcesDir = resourcesDir;
         this.loader = loader;
         this.console = console;
+        this.pool = pool;
+        this.routeConflictsAreErrors = routeConflictsAreErrors;
+    }
+
+    /**
+     * Specs that declare the same method and url shape are reported as warnings unless this
+     * is set, in which case the first such conflict fails validation.
+     */
+    public RestSpecValidator withRouteConflictsAsErrors(boolean routeConflictsAreErrors) {
+        return new RestSpecValidator(resourcesDir, loader, console, pool, routeConflictsAreErrors);
+    }
+
+    File resourcesDir() {
+        return resourcesDir;
+    }
+
+    PrintStream console() {
+        return console;
     }
 
     public void validate() {
@@ -91,55 +150,371 @@ public class RestSpecValidator {
     }
 
     public void validate(List<String> ignores) {
-        console.println("Scanning files under " + resourcesDir.getAbsolutePath());
-        FileScanningResult scan = scan(resourcesDir);
-        console.println("Found " + scan.specDotJsFiles.size() + " specs");
+        validate(ignores, null);
+    }
+
+    /**
+     * Validates incrementally when stateFile is given: specs whose content, and whose
+     * referenced files' content, match the previous run reuse its results.  Duplicate names,
+     * references and orphans are always rechecked.
+     */
+    public void validate(List<String> ignores, File stateFile) {
+        validate(ignores, stateFile, new ValidationReport());
+    }
+
+    /**
+     * As {@link #validate(List, File)}, recording timings, counts and every error found into
+     * report before the first error is thrown.
+     */
+    public void validate(List<String> ignores, File stateFile, ValidationReport report) {
+        if (stateFile == null || !(loader instanceof MetadataLoader)) {
+            validate(ignores, null, null, report);
+            return;
+        }
 
-        if (scan.specDotJsFiles.isEmpty()) {
-            throw new RuntimeException("Something is wrong ... I was expecting to find .spec.json files under " + resourcesDir.getAbsolutePath() + " but found nothing.");
+        ValidationState next = new ValidationState();
+        try {
+            validate(ignores, ValidationState.read(stateFile), next, report);
+        } finally {
+            next.write(stateFile);
         }
+    }
+
+    void validate(List<String> ignores, ValidationState previous, ValidationState next, ValidationReport report) {
+        final long start = System.nanoTime();
+        try {
+            console.println("Scanning files under " + resourcesDir.getAbsolutePath());
+            FileScanningResult scan = scan(resourcesDir, ignores);
+            report.scanned(resourcesDir.getAbsolutePath(), scan.allFiles.size(), System.nanoTime() - start);
+            console.println("Found " + scan.specDotJsFiles.size() + " specs");
+
+            if (scan.specDotJsFiles.isEmpty()) {
+                String message = "Something is wrong ... I was expecting to find .spec.json files under " + resourcesDir.getAbsolutePath() + " but found nothing.";
+                report.error(message);
+                throw new RuntimeException(message);
+            }
+
+            KnownFiles knownFiles = new KnownFiles(resourcesDir, scan.allFiles, ignores);
+
+            final long checkStart = System.nanoTime();
+            final List<SpecCheck> checks;
+            if (previous != null && loader instanceof MetadataLoader) {
+                checks = checkAll(scan.specDotJsFiles, knownFiles, previous, next);
 
-        Set<String> fileNames = new TreeSet<String>();
-        for (Path specPath : scan.specDotJsFiles) {
-            final String baseMessage = "ERROR VALIDATING " + new File(resourcesDir, specPath.toString());
-            try {
-                RestSpec spec = new RestSpec("/" + specPath.toString(), loader);
+                int reused = 0;
+                for (SpecCheck check : checks) {
+                    if (check.reused) {
+                        reused++;
+                    }
+                }
+                console.println("Reused " + reused + " of " + checks.size() + " results from the previous run");
+            } else {
+                checks = checkAll(scan.specDotJsFiles, knownFiles, null, null);
+            }
+            report.checked(System.nanoTime() - checkStart);
+
+            RuntimeException failure = null;
+            long referenceNanos = 0;
+            Set<Path> referencedFiles = new HashSet<Path>();
+            Set<String> fileNames = new TreeSet<String>();
+            for (SpecCheck check : checks) {
+                long resolveStart = System.nanoTime();
+                resolveReferences(check, knownFiles);
+                referenceNanos += System.nanoTime() - resolveStart;
+                referencedFiles.addAll(check.referencedFiles);
+
+                String error = null;
+                try {
+                    if (check.error != null) {
+                        throw check.error;
+                    }
+
+                    if (fileNames.contains(check.name)) {
+                        throw new RuntimeException("There is more than one spec named \"" + check.name + "\"");
+                    } else {
+                        fileNames.add(check.name);
+                    }
+                } catch (Exception e) {
+                    RuntimeException wrapped = new RuntimeException(check.baseMessage + ": " + e.getMessage(), e);
+                    error = wrapped.getMessage();
+                    report.error(error);
+                    if (failure == null) {
+                        e.printStackTrace(console);
+                        failure = wrapped;
+                    }
+                }
 
-                if (spec.name() == null) {
-                    throw new RuntimeException(baseMessage + ": it is missing a \"name\"");
+                if (check.referenceError != null) {
+                    String referenceError = referenceFailure(check).getMessage();
+                    report.error(referenceError);
+                    error = error == null ? referenceError : error;
                 }
 
-                if (spec.path() == null) {
-                    throw new RuntimeException(baseMessage + ": it is missing a \"url\"");
+                report.spec(new ValidationReport.SpecEntry(check.specPath.toString(), check.name, check.bytes, check.parseNanos, check.checkNanos, check.reused, error));
+            }
+            report.referencesResolved(referencedFiles.size(), referenceNanos);
+
+            if (failure != null) {
+                throw failure;
+            }
+
+            detectRouteConflicts(checks, report);
+
+            detectOrphansAndMissingReferences(resourcesDir, scan.allFiles, scan.specDotJsFiles, checks, ignores, report);
+        } finally {
+            report.finished(System.nanoTime() - start);
+        }
+    }
+
+    private void detectRouteConflicts(List<SpecCheck> checks, ValidationReport report) {
+        RouteTable<SpecCheck> routes = new RouteTable<SpecCheck>();
+        String firstConflict = null;
+        for (SpecCheck check : checks) {
+            if (check.method == null || check.url == null) {
+                continue;
+            }
+            SpecCheck existing = routes.add(check.method, check.url, check);
+            if (existing != null) {
+                String message = "Ambiguous route " + check.method + " " + RouteTable.shape(check.url) + ": " + check.specPath + " declares the same route as " + existing.specPath + ", so it can never be served";
+                report.routeConflict(message);
+                if (routeConflictsAreErrors) {
+                    report.error(message);
+                    firstConflict = firstConflict == null ? message : firstConflict;
+                } else {
+                    console.println("[WARNING] " + message);
                 }
+            }
+        }
+        report.routesChecked(routeConflictsAreErrors);
+
+        if (firstConflict != null) {
+            throw new RuntimeException(firstConflict);
+        }
+    }
+
+    private static RuntimeException referenceFailure(SpecCheck check) {
+        return new RuntimeException("There was an error parsing " + check.specPath + " :" + check.referenceError.getMessage(), check.referenceError);
+    }
 
-                if (spec.response() == null) {
-                    throw new RuntimeException(baseMessage + ": it is missing a \"response\"");
+    private List<SpecCheck> checkAll(List<Path> specDotJsFiles, final KnownFiles knownFiles, final ValidationState previous, final ValidationState next) {
+        List<Callable<SpecCheck>> tasks = new ArrayList<Callable<SpecCheck>>(specDotJsFiles.size());
+        for (final Path specPath : specDotJsFiles) {
+            tasks.add(new Callable<SpecCheck>() {
+                public SpecCheck call() {
+                    SpecCheck check = previous == null ? check(specPath, knownFiles) : checkIncrementally(specPath, knownFiles, previous, next);
+                    check.bytes = loader instanceof MetadataLoader ? ((MetadataLoader) loader).size("/" + specPath) : -1;
+                    return check;
                 }
+            });
+        }
+
+        List<SpecCheck> checks = new ArrayList<SpecCheck>(tasks.size());
+        try {
+            for (Future<SpecCheck> result : pool.invokeAll(tasks)) {
+                checks.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while validating specs", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return checks;
+    }
+
+    private SpecCheck checkIncrementally(Path specPath, KnownFiles knownFiles, ValidationState previous, ValidationState next) {
+        MetadataLoader metadata = (MetadataLoader) loader;
+        String key = specPath.toString();
+
+        // fingerprint before checking, so that a file edited mid-check looks changed next run
+        Set<String> fingerprinted = new HashSet<String>();
+        ValidationState.SpecResult result = previous.specs.get(key);
+        boolean unchanged = ValidationState.sameContent(previous.files.get(key), next.fingerprint(key, metadata, previous)) && result != null;
+        fingerprinted.add(key);
+        if (result != null) {
+            for (String ref : result.refs) {
+                String refKey = new Path(ref).toString();
+                unchanged &= ValidationState.sameContent(previous.files.get(refKey), next.fingerprint(refKey, metadata, previous));
+                fingerprinted.add(refKey);
+            }
+        }
 
-                if (spec.response().representation() != null && spec.response().header().fieldsNamed("Content-Type").isEmpty()) {
-                    throw new RuntimeException(baseMessage + ": it is missing a \"Content-Type\" header");
+        SpecCheck check;
+        if (unchanged) {
+            check = new SpecCheck(specPath, baseMessageFor(specPath));
+            check.reused = true;
+            check.name = result.name;
+            check.method = result.method;
+            check.url = result.url;
+            check.refs.addAll(result.refs);
+            if (result.error != null) {
+                check.error = new RuntimeException(result.error);
+            }
+        } else {
+            check = check(specPath, knownFiles);
+            for (String ref : check.refs) {
+                String refKey = new Path(ref).toString();
+                if (fingerprinted.add(refKey)) {
+                    next.fingerprint(refKey, metadata, previous);
                 }
+            }
+        }
 
-                if (fileNames.contains(spec.name())) {
-                    throw new RuntimeException("There is more than one spec named \"" + spec.name() + "\"");
-                } else {
-                    fileNames.add(spec.name());
+        next.specs.put(key, new ValidationState.SpecResult(check.name, check.method, check.url, check.error == null ? null : check.error.getMessage(), check.refs));
+        return check;
+    }
+
+    private String baseMessageFor(Path specPath) {
+        return "ERROR VALIDATING " + new File(resourcesDir, specPath.toString());
+    }
+
+    private SpecCheck check(Path specPath, final KnownFiles knownFiles) {
+        final SpecCheck check = new SpecCheck(specPath, baseMessageFor(specPath));
+        final String baseMessage = check.baseMessage;
+        long start = System.nanoTime();
+        boolean parsed = false;
+        try {
+            SpecParser.ParsedSpec parsedSpec = RestSpec.load("/" + specPath.toString(), loader);
+            check.parseNanos = System.nanoTime() - start;
+            parsed = true;
+            start = System.nanoTime();
+            RestSpec spec = new RestSpec(parsedSpec, loader, RepresentationCache.none());
+            check.name = spec.name();
+            check.method = parsedSpec.request.path("method").textValue();
+            check.url = parsedSpec.url;
+
+            if (spec.name() == null) {
+                throw new RuntimeException(baseMessage + ": it is missing a \"name\"");
+            }
+
+            if (spec.path() == null) {
+                throw new RuntimeException(baseMessage + ": it is missing a \"url\"");
+            }
+
+            if (spec.response() == null) {
+                throw new RuntimeException(baseMessage + ": it is missing a \"response\"");
+            }
+
+            if (spec.response().representation() != null && spec.response().header().fieldsNamed("Content-Type").isEmpty()) {
+                throw new RuntimeException(baseMessage + ": it is missing a \"Content-Type\" header");
+            }
+
+            addReference(check, parsedSpec.request.path("representation-ref"));
+            addReference(check, parsedSpec.response.path("representation-ref"));
+
+            if (!parsedSpec.request.isMissingNode()) {
+                checkWellFormed(baseMessage, "request", spec.request().header(), parsedSpec.request, knownFiles);
+            }
+            checkWellFormed(baseMessage, "response", spec.response().header(), parsedSpec.response, knownFiles);
+        } catch (Exception e) {
+            check.error = e;
+        }
+        if (parsed) {
+            check.checkNanos = System.nanoTime() - start;
+        } else {
+            check.parseNanos = System.nanoTime() - start;
+        }
+        return check;
+    }
+
+    private void checkWellFormed(String baseMessage, String what, Header header, JsonNode node, KnownFiles knownFiles) {
+        JsonNode ref = node.path("representation-ref");
+        if (!ref.isMissingNode() && !knownFiles.contains(new Path(ref.asText()))) {
+            // resolveReferences reports it
+            return;
+        }
+        List<String> contentTypes = header.fieldsNamed("Content-Type");
+        if (!contentTypes.isEmpty()) {
+            String problem = WellFormedness.check(contentTypes.get(0), node, loader);
+            if (problem != null) {
+                throw new RuntimeException(baseMessage + ": its " + what + " representation is malformed; " + problem);
+            }
+        }
+    }
+
+    private static void addReference(SpecCheck check, JsonNode refNode) {
+        if (!refNode.isMissingNode()) {
+            check.refs.add(refNode.asText());
+        }
+    }
+
+    private void resolveReferences(SpecCheck check, KnownFiles knownFiles) {
+        for (String ref : check.refs) {
+            Path file = new Path(ref);
+            if (!knownFiles.contains(file)) {
+                check.referenceError = new RuntimeException("Spec references nonexistent file: " + new File(resourcesDir.getAbsolutePath() + File.separatorChar + ref).getAbsolutePath());
+                return;
+            }
+            check.referencedFiles.add(file);
+        }
+    }
+
+    /**
+     * The files a scan found.  Excluded directories aren't walked, so their files are missing
+     * from the scan; a reference into one is looked up on disk instead.
+     */
+    private static class KnownFiles {
+        private final File resourcesDir;
+        private final Set<String> files = new HashSet<String>();
+        private final Set<String> excludedKeys = new HashSet<String>();
+
+        KnownFiles(File resourcesDir, List<Path> scanned, List<String> excludes) {
+            this.resourcesDir = resourcesDir;
+            for (Path file : scanned) {
+                files.add(file.key);
+            }
+            for (String next : excludes) {
+                excludedKeys.add(new Path(next).key);
+            }
+        }
+
+        boolean contains(Path file) {
+            if (files.contains(file.key)) {
+                return true;
+            }
+            for (Path dir = file.parent(); dir != null; dir = dir.parent()) {
+                if (excludedKeys.contains(dir.key)) {
+                    return new File(resourcesDir, file.key).isFile();
                 }
-            } catch (Exception e) {
-                e.printStackTrace(console);
-                throw new RuntimeException(baseMessage + ": " + e.getMessage(), e);
             }
+            return false;
         }
+    }
 
-        detectOrphansAndMissingReferences(resourcesDir, scan.allFiles, scan.specDotJsFiles, ignores);
+    private static class SpecCheck {
+        final Path specPath;
+        final String baseMessage;
+        final List<String> refs = new ArrayList<String>(2);
+        final List<Path> referencedFiles = new ArrayList<Path>(2);
+        String name;
+        String method;
+        String url;
+        boolean reused;
+        long bytes = -1;
+        long parseNanos;
+        long checkNanos;
+        Exception error;
+        RuntimeException referenceError;
+
+        SpecCheck(Path specPath, String baseMessage) {
+            this.specPath = specPath;
+            this.baseMessage = baseMessage;
+        }
     }
 
+    private static final String SPEC_SUFFIX = ".spec.json";
+
+    private static final Comparator<Path> ALPHABETICALLY = new Comparator<Path>() {
+        public int compare(Path a, Path b) {
+            return a.key.compareTo(b.key);
+        }
+    };
+
     private static List<Path> minusNonSpecFiles(List<Path> allFiles) {
         List<Path> specDotJsFiles = new ArrayList<Path>();
 
         for (Path next : allFiles) {
-            if (next.toString().toLowerCase().endsWith(".spec.json")) {
+            if (next.key.regionMatches(true, next.key.length() - SPEC_SUFFIX.length(), SPEC_SUFFIX, 0, SPEC_SUFFIX.length())) {
                 specDotJsFiles.add(next);
             }
         }
@@ -162,7 +537,7 @@ public class RestSpecValidator {
         return output;
     }
 
-    private void detectOrphansAndMissingReferences(File resourcesDir, List<Path> files, List<Path> specDotJsFiles, List<String> ignoreStrings) {
+    private void detectOrphansAndMissingReferences(File resourcesDir, List<Path> files, List<Path> specDotJsFiles, List<SpecCheck> checks, List<String> ignoreStrings, ValidationReport report) {
         List<Path> ignores = collect(ignoreStrings, new Fn<String, Path>() {
             public Path run(String input) {
                 return new Path(input);
@@ -170,25 +545,11 @@ public class RestSpecValidator {
         });
         List<Path> referencedFiles = new ArrayList<Path>();
 
-        for (Path next : specDotJsFiles) {
-            try {
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode root = mapper.readValue(loader.load("/" + next), JsonNode.class);
-
-                JsonNode requestRef = root.path("request").path("representation-ref");
-                if (!requestRef.isMissingNode()) {
-                    Path file = validateRepresentationReference(next, requestRef);
-                    referencedFiles.add(file);
-                }
-
-                JsonNode responseRef = root.path("response").path("representation-ref");
-                if (!responseRef.isMissingNode()) {
-                    Path file = validateRepresentationReference(next, responseRef);
-                    referencedFiles.add(file);
-                }
-            } catch (Throwable t) {
-                throw new RuntimeException("There was an error parsing " + next + " :" + t.getMessage(), t);
+        for (SpecCheck next : checks) {
+            if (next.referenceError != null) {
+                throw referenceFailure(next);
             }
+            referencedFiles.addAll(next.referencedFiles);
         }
 
         TreeSet<Path> filesToVet = new TreeSet<Path>(files);
@@ -218,39 +579,82 @@ public class RestSpecValidator {
                 text.append("\n    " + new File(resourcesDir, next.toString()).getAbsolutePath() + "");
             }
 
+            report.orphans(filesToVet.size(), text.toString());
+            report.error(text.toString());
             throw new RuntimeException(text.toString());
         }
+        report.orphans(0, null);
     }
 
-    private Path validateRepresentationReference(Path next, JsonNode refNode) {
-        File file = new File(resourcesDir.getAbsolutePath() + File.separatorChar + refNode.asText());
+    private static List<Path> walk(File root, List<String> excludes) {
+        final Set<String> excludedKeys = new HashSet<String>();
+        for (String next : excludes) {
+            excludedKeys.add(new Path(next).toString());
+        }
 
-        if (!file.exists()) {
-            throw new RuntimeException("Spec references nonexistent file: " + file.getAbsolutePath());
+        final java.nio.file.Path rootPath = root.toPath();
+        final List<Path> files = new ArrayList<Path>();
+        if (!Files.isDirectory(rootPath)) {
+            if (Files.isRegularFile(rootPath)) {
+                files.add(new Path());
+            }
+            return files;
         }
 
-        return new Path(refNode.asText());
-    }
+        try {
+            Files.walkFileTree(rootPath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<java.nio.file.Path>() {
+                private final ArrayDeque<Path> directories = new ArrayDeque<Path>();
+
+                @Override
+                public FileVisitResult preVisitDirectory(java.nio.file.Path dir, BasicFileAttributes attrs) {
+                    Path path = directories.isEmpty() ? new Path() : directories.peek().childNamed(dir.getFileName().toString());
+                    if (!directories.isEmpty() && excludedKeys.contains(path.key)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    directories.push(path);
+                    return FileVisitResult.CONTINUE;
+                }
 
-    private static List<Path> flatListFiles(Path base, File path, List<Path> files) {
-        if (path.isDirectory()) {
-            for (File child : path.listFiles()) {
-                flatListFiles(base.childNamed(child.getName()), child, files);
-            }
-        } else if (path.isFile()) {
-            files.add(base);
-        } else {
-            // just ignore it
+                @Override
+                public FileVisitResult postVisitDirectory(java.nio.file.Path dir, IOException e) {
+                    directories.pop();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(java.nio.file.Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        files.add(directories.peek().childNamed(file.getFileName().toString()));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(java.nio.file.Path file, IOException e) {
+                    // just ignore it
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to scan " + root.getAbsolutePath(), e);
         }
 
         return files;
     }
 
+    /**
+     * A path relative to the scanned directory.  Children share their parent, and the
+     * slash-separated key is built once, so sorting and hashing never rebuild strings.
+     */
     public static class Path implements Comparable<Path> {
-        final List<String> segments;
+        private final Path parent;
+        private final String name;
+        final String key;
 
         public Path() {
-            segments = Collections.emptyList();
+            this.parent = null;
+            this.name = null;
+            this.key = "";
         }
 
         public Path(String path) {
@@ -258,37 +662,49 @@ public class RestSpecValidator {
         }
 
         public Path(List<String> segments) {
-            super();
-            this.segments = segments;
+            this(segments.isEmpty() ? null : new Path(segments.subList(0, segments.size() - 1)),
+                 segments.isEmpty() ? null : segments.get(segments.size() - 1));
+        }
+
+        private Path(Path parent, String name) {
+            this.parent = parent;
+            this.name = name;
+            this.key = parent == null ? "" : parent.key.isEmpty() ? name : parent.key + "/" + name;
         }
 
         public Path parent() {
-            return segments.isEmpty() ? null : new Path(segments.subList(0, segments.size() - 1));
+            return parent;
+        }
+
+        public List<String> segments() {
+            LinkedList<String> segments = new LinkedList<String>();
+            for (Path next = this; next.parent != null; next = next.parent) {
+                segments.addFirst(next.name);
+            }
+            return segments;
         }
 
         public int compareTo(Path o) {
-            return o.toString().compareTo(this.toString());
+            return o.key.compareTo(this.key);
         }
 
         public Path childNamed(String childName) {
-            List<String> path = new ArrayList<String>();
-            path.addAll(segments);
-            path.add(childName);
-            return new Path(path);
+            return new Path(this, childName);
         }
 
         @Override
-        public String toString() {
-            StringBuilder txt = new StringBuilder();
-            for (String next : segments) {
-                if (txt.length() > 0) {
-                    txt.append("/");
-                }
-                txt.append(next);
-            }
+        public boolean equals(Object o) {
+            return o instanceof Path && ((Path) o).key.equals(key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
 
-            return txt.toString();
+        @Override
+        public String toString() {
+            return key;
         }
     }
 }
-
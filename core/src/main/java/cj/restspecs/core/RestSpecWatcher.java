@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps validating a resources directory as files under it change.  Bursts of events are
+ * collected until the tree has been quiet for the debounce interval, and the changed files
+ * are then revalidated against the results of the previous pass.
+ */
+public class RestSpecWatcher implements Closeable {
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+
+    private final RestSpecValidator validator;
+    private final List<String> ignores;
+    private final long debounceMillis;
+    private final Path root;
+    private final PrintStream console;
+    private final WatchService watchService;
+    private ValidationState state = new ValidationState();
+
+    public RestSpecWatcher(RestSpecValidator validator, List<String> ignores) {
+        this(validator, ignores, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    public RestSpecWatcher(RestSpecValidator validator, List<String> ignores, long debounceMillis) {
+        this.validator = validator;
+        this.ignores = ignores;
+        this.debounceMillis = debounceMillis;
+        this.root = validator.resourcesDir().toPath().toAbsolutePath();
+        this.console = validator.console();
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to watch " + root, e);
+        }
+    }
+
+    /**
+     * Validates once, then again after every burst of changes until closed or interrupted.
+     */
+    public void run() {
+        try {
+            register(root);
+            validate();
+
+            while (true) {
+                Set<String> changed = new HashSet<String>();
+                boolean overflowed = collect(watchService.take(), changed);
+                WatchKey next;
+                while ((next = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    overflowed |= collect(next, changed);
+                }
+
+                if (overflowed) {
+                    state = new ValidationState();
+                } else {
+                    for (String key : changed) {
+                        state.changed(key);
+                    }
+                }
+                console.println("Changed: " + changed);
+                validate();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to watch " + root, e);
+        }
+    }
+
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void validate() {
+        long start = System.nanoTime();
+        ValidationState next = new ValidationState();
+        try {
+            validator.validate(ignores, state, next, new ValidationReport());
+            console.println("VALID (" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms)");
+        } catch (RuntimeException e) {
+            console.println("INVALID (" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms): " + e.getMessage());
+        }
+        state = next;
+    }
+
+    private boolean collect(WatchKey key, Set<String> changed) throws IOException {
+        boolean overflowed = false;
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflowed = true;
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                register(child);
+            }
+            changed.add(root.relativize(child).toString().replace(File.separatorChar, '/'));
+        }
+        key.reset();
+        return overflowed;
+    }
+
+    private void register(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,365 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Routes keyed by method, path segments and query parameters, held in a trie so that adding
+ * n routes costs time proportional to their total length, and finding the route for a request
+ * costs time proportional to the request's path.  Placeholder names don't matter:
+ * '/users/{id}' and '/users/{userId}' are the same route, and a second route with the same
+ * shape is reported as a conflict rather than added.  Literal query values are part of the
+ * shape, so '/search?q=shoes' and '/search?q=boots' are different routes, while a placeholder
+ * value such as '/search?q={q}' serves any value the literal routes don't.
+ */
+public final class RouteTable<T> {
+    private static final String VARIABLE = "{}";
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{[^{}]*\\}");
+
+    private static final class Node<T> {
+        final Map<String, Node<T>> children = new HashMap<String, Node<T>>(4);
+        List<Partial<T>> partials;
+        List<Route<T>> routes;
+    }
+
+    /**
+     * A route's query: its parameters sorted by name, with null standing for a placeholder value.
+     */
+    private static final class Route<T> {
+        final String keys;
+        final String shape;
+        final String[] names;
+        final String[] values;
+        final T value;
+
+        Route(String url, T value) {
+            List<String[]> parameters = queryParameters(url);
+            this.keys = queryKeys(url);
+            this.names = new String[parameters.size()];
+            this.values = new String[parameters.size()];
+            StringBuilder shape = new StringBuilder();
+            for (int x = 0; x < names.length; x++) {
+                names[x] = parameters.get(x)[0];
+                String parameterValue = parameters.get(x)[1];
+                boolean variable = shapeOf(parameterValue).contains(VARIABLE);
+                values[x] = variable ? null : parameterValue;
+                if (x > 0) {
+                    shape.append('&');
+                }
+                shape.append(names[x]);
+                if (!parameterValue.isEmpty()) {
+                    shape.append('=').append(variable ? VARIABLE : parameterValue);
+                }
+            }
+            this.shape = shape.toString();
+            this.value = value;
+        }
+
+        /**
+         * How many of this route's literal values the request matches, or -1 if it doesn't
+         * match them all.
+         */
+        int score(String requestKeys, List<String[]> request) {
+            if (!keys.equals(requestKeys) || request.size() != names.length) {
+                return -1;
+            }
+            int score = 0;
+            for (int x = 0; x < names.length; x++) {
+                if (!names[x].equals(request.get(x)[0])) {
+                    return -1;
+                }
+                if (values[x] != null) {
+                    if (!values[x].equals(request.get(x)[1])) {
+                        return -1;
+                    }
+                    score++;
+                }
+            }
+            return score;
+        }
+    }
+
+    /**
+     * A child whose segment is part literal, part placeholder, e.g. '{}.json'.
+     */
+    private static final class Partial<T> implements Comparable<Partial<T>> {
+        final String shape;
+        final Pattern pattern;
+        final Node<T> node;
+        final int literals;
+
+        Partial(String shape, Node<T> node) {
+            this.shape = shape;
+            this.node = node;
+            StringBuilder regex = new StringBuilder();
+            int start = 0;
+            int variables = 0;
+            for (int brace = shape.indexOf(VARIABLE); brace != -1; brace = shape.indexOf(VARIABLE, start)) {
+                regex.append(Pattern.quote(shape.substring(start, brace))).append(".+");
+                start = brace + VARIABLE.length();
+                variables++;
+            }
+            this.pattern = Pattern.compile(regex.append(Pattern.quote(shape.substring(start))).toString());
+            this.literals = shape.length() - variables * VARIABLE.length();
+        }
+
+        public int compareTo(Partial<T> other) {
+            int byLiterals = other.literals - literals;
+            return byLiterals != 0 ? byLiterals : shape.compareTo(other.shape);
+        }
+    }
+
+    private final Map<String, Node<T>> methods = new HashMap<String, Node<T>>();
+    private int size;
+
+    /**
+     * Adds value for method and url, unless a route of the same shape is already present,
+     * in which case that route's value is returned and the table is unchanged.
+     */
+    public T add(String method, String url, T value) {
+        Node<T> node = methods.get(method);
+        if (node == null) {
+            node = new Node<T>();
+            methods.put(method, node);
+        }
+
+        for (String segment : pathSegments(url)) {
+            String shape = shapeOf(segment);
+            Node<T> child = node.children.get(shape);
+            if (child == null) {
+                child = new Node<T>();
+                node.children.put(shape, child);
+                if (!shape.equals(VARIABLE) && shape.contains(VARIABLE)) {
+                    if (node.partials == null) {
+                        node.partials = new ArrayList<Partial<T>>(2);
+                    }
+                    node.partials.add(new Partial<T>(shape, child));
+                    Collections.sort(node.partials);
+                }
+            }
+            node = child;
+        }
+
+        if (node.routes == null) {
+            node.routes = new ArrayList<Route<T>>(2);
+        }
+        Route<T> route = new Route<T>(url, value);
+        for (Route<T> existing : node.routes) {
+            if (existing.shape.equals(route.shape)) {
+                return existing.value;
+            }
+        }
+        node.routes.add(route);
+        size++;
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The value of the most specific route that serves method and url, or null if none does.
+     * Segments are compared from the left, and at each one a literal match beats a partly
+     * literal one such as '{}.json', which beats a bare placeholder.  Placeholders match any
+     * non-empty segment.  The query must carry exactly the route's parameter names and match
+     * its literal values; of the routes that do, the one with the most literal values wins, and
+     * then the one added first.
+     */
+    public T match(String method, String url) {
+        Node<T> root = methods.get(method);
+        if (root == null) {
+            return null;
+        }
+        return match(root, pathSegments(url), 0, new Query(url));
+    }
+
+    private static final class Query {
+        final String keys;
+        final List<String[]> parameters;
+
+        Query(String url) {
+            this.keys = queryKeys(url);
+            this.parameters = queryParameters(url);
+        }
+    }
+
+    private T match(Node<T> node, List<String> segments, int depth, Query query) {
+        if (depth == segments.size()) {
+            if (node.routes == null) {
+                return null;
+            }
+            Route<T> best = null;
+            int bestScore = -1;
+            for (Route<T> route : node.routes) {
+                int score = route.score(query.keys, query.parameters);
+                if (score > bestScore) {
+                    best = route;
+                    bestScore = score;
+                }
+            }
+            return best == null ? null : best.value;
+        }
+        String segment = segments.get(depth);
+        T found;
+
+        Node<T> literal = node.children.get(segment);
+        if (literal != null && (found = match(literal, segments, depth + 1, query)) != null) {
+            return found;
+        }
+        if (segment.isEmpty()) {
+            return null;
+        }
+        if (node.partials != null) {
+            for (Partial<T> partial : node.partials) {
+                if (partial.pattern.matcher(segment).matches() && (found = match(partial.node, segments, depth + 1, query)) != null) {
+                    return found;
+                }
+            }
+        }
+        Node<T> variable = node.children.get(VARIABLE);
+        if (variable != null && variable != literal) {
+            return match(variable, segments, depth + 1, query);
+        }
+        return null;
+    }
+
+    /**
+     * The url with placeholders blanked out and query parameters sorted by name, e.g.
+     * '/users/{}?q=shoes&verbose={}'.
+     */
+    public static String shape(String url) {
+        StringBuilder text = new StringBuilder();
+        for (String segment : pathSegments(url)) {
+            text.append('/').append(shapeOf(segment));
+        }
+        String query = new Route<Object>(url, null).shape;
+        if (!query.isEmpty()) {
+            text.append('?').append(query);
+        }
+        return text.toString();
+    }
+
+    static List<String> pathSegments(String url) {
+        int end = endOfPath(url);
+        List<String> segments = new ArrayList<String>();
+        int start = url.startsWith("/") ? 1 : 0;
+        while (true) {
+            int slash = url.indexOf('/', start);
+            if (slash == -1 || slash >= end) {
+                segments.add(url.substring(start, end));
+                return segments;
+            }
+            segments.add(url.substring(start, slash));
+            start = slash + 1;
+        }
+    }
+
+    /**
+     * The query's name and value pairs, sorted by name; repeated names keep their order.
+     */
+    static List<String[]> queryParameters(String url) {
+        int question = url.indexOf('?');
+        if (question == -1 || endOfPath(url) < question) {
+            return Collections.emptyList();
+        }
+        int hash = url.indexOf('#', question);
+        List<String[]> parameters = new ArrayList<String[]>();
+        for (String pair : url.substring(question + 1, hash == -1 ? url.length() : hash).split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals == -1 ? pair : pair.substring(0, equals);
+            if (!key.isEmpty()) {
+                parameters.add(new String[]{key, equals == -1 ? "" : pair.substring(equals + 1)});
+            }
+        }
+        Collections.sort(parameters, BY_NAME);
+        return parameters;
+    }
+
+    private static final Comparator<String[]> BY_NAME = new Comparator<String[]>() {
+        public int compare(String[] a, String[] b) {
+            return a[0].compareTo(b[0]);
+        }
+    };
+
+    static String queryKeys(String url) {
+        int question = url.indexOf('?');
+        if (question == -1 || endOfPath(url) < question) {
+            return "";
+        }
+        int hash = url.indexOf('#', question);
+        List<String> keys = new ArrayList<String>();
+        for (String pair : url.substring(question + 1, hash == -1 ? url.length() : hash).split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals == -1 ? pair : pair.substring(0, equals);
+            if (!key.isEmpty() && !keys.contains(key)) {
+                keys.add(key);
+            }
+        }
+        Collections.sort(keys);
+        StringBuilder text = new StringBuilder();
+        for (String key : keys) {
+            if (text.length() > 0) {
+                text.append('&');
+            }
+            text.append(key);
+        }
+        return text.toString();
+    }
+
+    static String shapeOf(String segment) {
+        return segment.indexOf('{') == -1 ? segment : PLACEHOLDER.matcher(segment).replaceAll(VARIABLE);
+    }
+
+    private static int endOfPath(String url) {
+        for (int x = 0; x < url.length(); x++) {
+            char c = url.charAt(x);
+            if (c == '?' || c == '#') {
+                return x;
+            }
+        }
+        return url.length();
+    }
+}
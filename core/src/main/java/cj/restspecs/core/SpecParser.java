@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.core;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads a .spec.json document in a single streaming pass, rejecting unknown fields as it goes.
+ * Only the 'request' and 'response' sections are materialized as trees; the shared reader is thread-safe.
+ */
+public class SpecParser {
+    private static final ObjectReader READER = new ObjectMapper().reader();
+
+    private static final Set<String> ALLOWED_FIELDS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+            "name",
+            "domain",
+            "dependency-scope",
+            "url",
+            "request",
+            "response"
+    )));
+
+    private static final Set<String> ALLOWED_RESPONSE_FIELDS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+            "statusCode",
+            "header",
+            "representation",
+            "representation-ref"
+    )));
+
+    public static class ParsedSpec {
+        public final String name;
+        public final String url;
+        public final JsonNode request;
+        public final JsonNode response;
+
+        public ParsedSpec(String name, String url, JsonNode request, JsonNode response) {
+            this.name = name;
+            this.url = url;
+            this.request = request;
+            this.response = response;
+        }
+    }
+
+    private SpecParser() {
+    }
+
+    public static ParsedSpec parse(InputStream is) {
+        try {
+            JsonParser parser = READER.getFactory().createParser(is);
+            try {
+                return parse(parser);
+            } finally {
+                parser.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static ParsedSpec parse(JsonParser parser) throws IOException {
+        String name = "";
+        String url = "";
+        JsonNode request = MissingNode.getInstance();
+        JsonNode response = MissingNode.getInstance();
+
+        JsonToken first = parser.nextToken();
+        if (first == null) {
+            throw new RuntimeException("Spec is empty");
+        }
+        if (first != JsonToken.START_OBJECT) {
+            throw new RuntimeException("Spec is missing a 'url'");
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (!ALLOWED_FIELDS.contains(field)) {
+                throw new RuntimeException("Field '" + field + "' is not allowed");
+            }
+
+            JsonToken value = parser.nextToken();
+            if ("name".equals(field)) {
+                name = readText(parser, value);
+            } else if ("url".equals(field)) {
+                url = readText(parser, value);
+            } else if ("request".equals(field)) {
+                request = readTree(parser);
+            } else if ("response".equals(field)) {
+                response = value == JsonToken.START_OBJECT ? readResponse(parser) : readTree(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (url == null || url.isEmpty()) {
+            throw new RuntimeException("Spec is missing a 'url'");
+        }
+
+        return new ParsedSpec(name, url, request, response);
+    }
+
+    private static JsonNode readResponse(JsonParser parser) throws IOException {
+        ObjectNode response = JsonNodeFactory.instance.objectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (!ALLOWED_RESPONSE_FIELDS.contains(field)) {
+                throw new RuntimeException("Field '" + field + "' is not allowed");
+            }
+            parser.nextToken();
+            response.set(field, readTree(parser));
+        }
+        return response;
+    }
+
+    private static String readText(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        return readTree(parser).asText();
+    }
+
+    private static JsonNode readTree(JsonParser parser) throws IOException {
+        JsonNode node = READER.readTree(parser);
+        return node == null ? NullNode.getInstance() : node;
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A spec url split once into literal text and '{placeholder}' occurrences, so that any set of
+ * bindings can be rendered in a single pass.  Placeholders are named by their full text, braces
+ * included, which is how {@link RestSpec#withParameter(String, Object)} refers to them.
+ */
+public final class UrlTemplate {
+    private final String template;
+    private final String[] literals;
+    private final int[] occurrences;
+    private final int[] offsets;
+    private final List<String> placeholders;
+    private final int literalLength;
+
+    private UrlTemplate(String template, List<String> literals, List<Integer> occurrences, List<Integer> offsets, List<String> placeholders) {
+        this.template = template;
+        this.literals = literals.toArray(new String[literals.size()]);
+        this.occurrences = new int[occurrences.size()];
+        this.offsets = new int[offsets.size()];
+        for (int x = 0; x < this.occurrences.length; x++) {
+            this.occurrences[x] = occurrences.get(x);
+            this.offsets[x] = offsets.get(x);
+        }
+        this.placeholders = Collections.unmodifiableList(placeholders);
+
+        int length = 0;
+        for (String literal : this.literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static UrlTemplate compile(String template) {
+        List<String> literals = new ArrayList<String>();
+        List<Integer> occurrences = new ArrayList<Integer>();
+        List<Integer> offsets = new ArrayList<Integer>();
+        List<String> placeholders = new ArrayList<String>();
+
+        int literalStart = 0;
+        int open = template.indexOf('{');
+        while (open > -1) {
+            int close = template.indexOf('}', open + 1);
+            if (close == -1) {
+                break;
+            }
+            int nestedOpen = template.lastIndexOf('{', close);
+            if (nestedOpen > open) {
+                open = nestedOpen;
+            }
+
+            String placeholder = template.substring(open, close + 1);
+            int index = placeholders.indexOf(placeholder);
+            if (index == -1) {
+                index = placeholders.size();
+                placeholders.add(placeholder);
+            }
+
+            literals.add(template.substring(literalStart, open));
+            occurrences.add(index);
+            offsets.add(open);
+
+            literalStart = close + 1;
+            open = template.indexOf('{', literalStart);
+        }
+        literals.add(template.substring(literalStart));
+
+        return new UrlTemplate(template, literals, occurrences, offsets, placeholders);
+    }
+
+    public String template() {
+        return template;
+    }
+
+    /**
+     * The distinct placeholders, in order of first appearance.
+     */
+    public List<String> placeholders() {
+        return placeholders;
+    }
+
+    public int indexOf(String placeholder) {
+        return placeholders.indexOf(placeholder);
+    }
+
+    /**
+     * The offset in {@link #template()} of every placeholder occurrence.
+     */
+    public int[] offsets() {
+        return offsets.clone();
+    }
+
+    /**
+     * Renders the template, replacing every placeholder with the matching value.  Placeholders
+     * without a value are left as written.  Keys that are not placeholders are treated as plain
+     * text to search and replace, as they always have been.
+     */
+    public String render(Map<String, ?> replacements) {
+        Object[] values = new Object[placeholders.size()];
+        for (Map.Entry<String, ?> entry : replacements.entrySet()) {
+            int index = indexOf(entry.getKey());
+            if (index == -1) {
+                return replaceTextually(template, replacements);
+            }
+            values[index] = entry.getValue();
+        }
+        return render(values);
+    }
+
+    /**
+     * Renders the template with values given by placeholder index (see {@link #placeholders()}).
+     */
+    public String render(Object[] values) {
+        if (occurrences.length == 0) {
+            return template;
+        }
+        return appendTo(new StringBuilder(literalLength + 16 * occurrences.length), values).toString();
+    }
+
+    public StringBuilder appendTo(StringBuilder out, Object[] values) {
+        for (int x = 0; x < occurrences.length; x++) {
+            out.append(literals[x]);
+            Object value = values[occurrences[x]];
+            if (value == null) {
+                out.append(placeholders.get(occurrences[x]));
+            } else {
+                out.append(value);
+            }
+        }
+        return out.append(literals[occurrences.length]);
+    }
+
+    /**
+     * Starts a fresh, reusable set of bindings for this template.
+     */
+    public Binding bind() {
+        return new Binding();
+    }
+
+    static String replaceTextually(String text, Map<String, ?> replacements) {
+        String result = text;
+        for (Map.Entry<String, ?> entry : replacements.entrySet()) {
+            result = result.replace(entry.getKey().toString(), entry.getValue().toString());
+        }
+        return result;
+    }
+
+    /**
+     * Mutable placeholder values plus a render buffer, meant to be reused across many renders on
+     * one thread.  Not thread-safe.
+     */
+    public final class Binding {
+        private final Object[] values = new Object[placeholders.size()];
+        private final StringBuilder buffer = new StringBuilder(literalLength + 16 * occurrences.length);
+
+        private Binding() {
+        }
+
+        public Binding set(String placeholder, Object value) {
+            int index = indexOf(placeholder);
+            if (index == -1) {
+                throw new IllegalArgumentException(String.format("%s does not exist in url", placeholder));
+            }
+            values[index] = value;
+            return this;
+        }
+
+        public Binding set(int index, Object value) {
+            values[index] = value;
+            return this;
+        }
+
+        public Binding clear() {
+            Arrays.fill(values, null);
+            return this;
+        }
+
+        public StringBuilder appendTo(StringBuilder out) {
+            return UrlTemplate.this.appendTo(out, values);
+        }
+
+        public String render() {
+            buffer.setLength(0);
+            return appendTo(buffer).toString();
+        }
+    }
+}
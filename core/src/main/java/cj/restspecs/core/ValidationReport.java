@@ -0,0 +1,323 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Timings, counts and every error from one validation run, written as JSON or as a JUnit
+ * XML test suite with one test case per spec, plus one each for the route conflict and orphan
+ * checks when the run got as far as them.
+ */
+public class ValidationReport {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static class SpecEntry {
+        public final String path;
+        public final String name;
+        public final long bytes;
+        public final long parseNanos;
+        public final long checkNanos;
+        public final boolean reused;
+        public final String error;
+
+        SpecEntry(String path, String name, long bytes, long parseNanos, long checkNanos, boolean reused, String error) {
+            this.path = path;
+            this.name = name;
+            this.bytes = bytes;
+            this.parseNanos = parseNanos;
+            this.checkNanos = checkNanos;
+            this.reused = reused;
+            this.error = error;
+        }
+    }
+
+    private final List<SpecEntry> specs = new ArrayList<SpecEntry>();
+    private final List<String> errors = new ArrayList<String>();
+    private final List<String> routeConflicts = new ArrayList<String>();
+    private String resourcesDir;
+    private int fileCount;
+    private int referencedFileCount;
+    private boolean routesChecked;
+    private boolean routeConflictsAreErrors;
+    private boolean orphansChecked;
+    private int orphanCount;
+    private String orphanError;
+    private long scanNanos;
+    private long checkNanos;
+    private long referenceNanos;
+    private long totalNanos;
+
+    public List<SpecEntry> specs() {
+        return Collections.unmodifiableList(specs);
+    }
+
+    public List<String> errors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public List<String> routeConflicts() {
+        return Collections.unmodifiableList(routeConflicts);
+    }
+
+    public int fileCount() {
+        return fileCount;
+    }
+
+    public int referencedFileCount() {
+        return referencedFileCount;
+    }
+
+    public int orphanCount() {
+        return orphanCount;
+    }
+
+    public long scanNanos() {
+        return scanNanos;
+    }
+
+    public long checkNanos() {
+        return checkNanos;
+    }
+
+    public long referenceNanos() {
+        return referenceNanos;
+    }
+
+    public long totalNanos() {
+        return totalNanos;
+    }
+
+    void scanned(String resourcesDir, int fileCount, long nanos) {
+        this.resourcesDir = resourcesDir;
+        this.fileCount = fileCount;
+        this.scanNanos = nanos;
+    }
+
+    void checked(long nanos) {
+        this.checkNanos = nanos;
+    }
+
+    void spec(SpecEntry entry) {
+        specs.add(entry);
+    }
+
+    void referencesResolved(int referencedFileCount, long nanos) {
+        this.referencedFileCount = referencedFileCount;
+        this.referenceNanos = nanos;
+    }
+
+    void routesChecked(boolean asErrors) {
+        this.routesChecked = true;
+        this.routeConflictsAreErrors = asErrors;
+    }
+
+    void orphans(int count, String error) {
+        this.orphansChecked = true;
+        this.orphanCount = count;
+        this.orphanError = error;
+    }
+
+    void routeConflict(String message) {
+        routeConflicts.add(message);
+    }
+
+    void error(String message) {
+        errors.add(message);
+    }
+
+    void finished(long nanos) {
+        this.totalNanos = nanos;
+    }
+
+    public void writeJson(File file) {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("resourcesDir", resourcesDir);
+        root.put("files", fileCount);
+        root.put("specs", specs.size());
+        root.put("referencedFiles", referencedFileCount);
+        root.put("orphans", orphanCount);
+        ObjectNode timings = root.putObject("millis");
+        timings.put("scan", millis(scanNanos));
+        timings.put("check", millis(checkNanos));
+        timings.put("references", millis(referenceNanos));
+        timings.put("total", millis(totalNanos));
+
+        ArrayNode errorsNode = root.putArray("errors");
+        for (String next : errors) {
+            errorsNode.add(next);
+        }
+
+        ArrayNode conflictsNode = root.putArray("routeConflicts");
+        for (String next : routeConflicts) {
+            conflictsNode.add(next);
+        }
+
+        ArrayNode specsNode = root.putArray("specFiles");
+        for (SpecEntry next : specs) {
+            ObjectNode spec = specsNode.addObject();
+            spec.put("path", next.path);
+            spec.put("name", next.name);
+            spec.put("bytes", next.bytes);
+            spec.put("parseMillis", millis(next.parseNanos));
+            spec.put("checkMillis", millis(next.checkNanos));
+            spec.put("reused", next.reused);
+            spec.put("error", next.error);
+        }
+
+        try {
+            createParent(file);
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(file, root);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write validation report to " + file.getAbsolutePath(), e);
+        }
+    }
+
+    public void writeJUnitXml(File file) {
+        int failures = 0;
+        for (SpecEntry next : specs) {
+            if (next.error != null) {
+                failures++;
+            }
+        }
+        // conflicts that are only warnings are listed without failing the test case
+        String routeText = routeConflicts.isEmpty() ? null : join(routeConflicts);
+        String routeError = routeConflictsAreErrors ? routeText : null;
+        String routeWarnings = routeConflictsAreErrors ? null : routeText;
+        if (routeError != null) {
+            failures++;
+        }
+        if (orphanError != null) {
+            failures++;
+        }
+        int tests = specs.size() + (routesChecked ? 1 : 0) + (orphansChecked ? 1 : 0);
+
+        try {
+            createParent(file);
+            OutputStream out = new FileOutputStream(file);
+            try {
+                XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+                xml.writeStartDocument("UTF-8", "1.0");
+                xml.writeStartElement("testsuite");
+                xml.writeAttribute("name", "restspecs");
+                xml.writeAttribute("tests", String.valueOf(tests));
+                xml.writeAttribute("failures", String.valueOf(failures));
+                xml.writeAttribute("errors", "0");
+                xml.writeAttribute("time", seconds(totalNanos));
+
+                for (SpecEntry next : specs) {
+                    testCase(xml, "restspecs.specs", next.path, next.parseNanos + next.checkNanos, next.error, null);
+                }
+                if (routesChecked) {
+                    testCase(xml, "restspecs.routes", "conflicts", 0, routeError, routeWarnings);
+                }
+                if (orphansChecked) {
+                    testCase(xml, "restspecs.files", "orphans", referenceNanos, orphanError, null);
+                }
+
+                xml.writeEndElement();
+                xml.writeEndDocument();
+                xml.close();
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write validation report to " + file.getAbsolutePath(), e);
+        } catch (XMLStreamException e) {
+            throw new RuntimeException("Unable to write validation report to " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private static void testCase(XMLStreamWriter xml, String className, String name, long nanos, String error, String output) throws XMLStreamException {
+        xml.writeStartElement("testcase");
+        xml.writeAttribute("classname", className);
+        xml.writeAttribute("name", name);
+        xml.writeAttribute("time", seconds(nanos));
+        if (error != null) {
+            xml.writeStartElement("failure");
+            xml.writeAttribute("message", error);
+            xml.writeCharacters(error);
+            xml.writeEndElement();
+        }
+        if (output != null) {
+            xml.writeStartElement("system-out");
+            xml.writeCharacters(output);
+            xml.writeEndElement();
+        }
+        xml.writeEndElement();
+    }
+
+    private static String join(List<String> lines) {
+        StringBuilder text = new StringBuilder();
+        for (String next : lines) {
+            text.append(text.length() == 0 ? "" : "\n").append(next);
+        }
+        return text.toString();
+    }
+
+    private static void createParent(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ENGLISH, "%.3f", nanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import cj.restspecs.core.io.MetadataLoader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * What a previous validation run learned about each spec, keyed by the content of the spec
+ * and of the files it references.  A spec whose fingerprints all still match can reuse its
+ * recorded result instead of being parsed and checked again.
+ */
+public class ValidationState {
+    private static final int VERSION = 2;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static class Fingerprint {
+        final long size;
+        final long lastModified;
+        final String digest;
+
+        Fingerprint(long size, long lastModified, String digest) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+    }
+
+    static class SpecResult {
+        final String name;
+        final String method;
+        final String url;
+        final String error;
+        final List<String> refs;
+
+        SpecResult(String name, String method, String url, String error, List<String> refs) {
+            this.name = name;
+            this.method = method;
+            this.url = url;
+            this.error = error;
+            this.refs = refs;
+        }
+    }
+
+    final Map<String, Fingerprint> files = new ConcurrentHashMap<String, Fingerprint>();
+    final Map<String, SpecResult> specs = new ConcurrentHashMap<String, SpecResult>();
+
+    public ValidationState() {
+    }
+
+    /**
+     * Reads a state file, or starts from nothing when it is missing or unreadable.
+     */
+    public static ValidationState read(File file) {
+        ValidationState state = new ValidationState();
+        if (file == null || !file.isFile()) {
+            return state;
+        }
+        try {
+            JsonNode root = MAPPER.readTree(file);
+            if (root.path("version").asInt() != VERSION) {
+                return state;
+            }
+
+            Iterator<Map.Entry<String, JsonNode>> files = root.path("files").fields();
+            while (files.hasNext()) {
+                Map.Entry<String, JsonNode> next = files.next();
+                JsonNode value = next.getValue();
+                state.files.put(next.getKey(), new Fingerprint(value.path("size").asLong(), value.path("lastModified").asLong(), value.path("digest").textValue()));
+            }
+
+            Iterator<Map.Entry<String, JsonNode>> specs = root.path("specs").fields();
+            while (specs.hasNext()) {
+                Map.Entry<String, JsonNode> next = specs.next();
+                JsonNode value = next.getValue();
+                List<String> refs = new ArrayList<String>();
+                for (JsonNode ref : value.path("refs")) {
+                    refs.add(ref.asText());
+                }
+                state.specs.put(next.getKey(), new SpecResult(value.path("name").textValue(), value.path("method").textValue(), value.path("url").textValue(), value.path("error").textValue(), Collections.unmodifiableList(refs)));
+            }
+        } catch (IOException e) {
+            return new ValidationState();
+        }
+        return state;
+    }
+
+    public void write(File file) {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("version", VERSION);
+
+        ObjectNode filesNode = root.putObject("files");
+        for (Map.Entry<String, Fingerprint> next : new TreeMap<String, Fingerprint>(files).entrySet()) {
+            ObjectNode value = filesNode.putObject(next.getKey());
+            value.put("size", next.getValue().size);
+            value.put("lastModified", next.getValue().lastModified);
+            value.put("digest", next.getValue().digest);
+        }
+
+        ObjectNode specsNode = root.putObject("specs");
+        for (Map.Entry<String, SpecResult> next : new TreeMap<String, SpecResult>(specs).entrySet()) {
+            ObjectNode value = specsNode.putObject(next.getKey());
+            value.put("name", next.getValue().name);
+            value.put("method", next.getValue().method);
+            value.put("url", next.getValue().url);
+            value.put("error", next.getValue().error);
+            ArrayNode refs = value.putArray("refs");
+            for (String ref : next.getValue().refs) {
+                refs.add(ref);
+            }
+        }
+
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            Files.createDirectories(parent.toPath());
+            File temp = File.createTempFile(file.getName(), ".tmp", parent);
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(temp, root);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write validation state to " + file.getAbsolutePath(), e);
+        }
+    }
+
+    public int size() {
+        return specs.size();
+    }
+
+    /**
+     * Fingerprints a resource, reusing the previous digest when its size and modification
+     * time are unchanged so that untouched files are never read.
+     */
+    Fingerprint fingerprint(String key, MetadataLoader loader, ValidationState previous) {
+        String name = "/" + key;
+        long size = loader.size(name);
+        long lastModified = loader.lastModified(name);
+        Fingerprint known = previous.files.get(key);
+        Fingerprint current = known != null && known.size == size && known.lastModified == lastModified && lastModified != 0
+                ? known
+                : new Fingerprint(size, lastModified, loader.digest(name));
+        files.put(key, current);
+        return current;
+    }
+
+    /**
+     * Forces the next fingerprint of key to read the file, for when a change is known even
+     * though the size and modification time may look the same.
+     */
+    void changed(String key) {
+        Fingerprint known = files.get(key);
+        if (known != null) {
+            files.put(key, new Fingerprint(known.size, -1, known.digest));
+        }
+    }
+
+    static boolean sameContent(Fingerprint a, Fingerprint b) {
+        return a != null && b != null && a.size == b.size && (a.digest == null ? b.digest == null : a.digest.equals(b.digest));
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.Locale;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import cj.restspecs.core.io.Loader;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Checks that JSON and XML representations are well-formed by streaming through their
+ * tokens, so memory use doesn't grow with the size of the body.
+ */
+final class WellFormedness {
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final ThreadLocal<XMLInputFactory> XML = new ThreadLocal<XMLInputFactory>() {
+        @Override
+        protected XMLInputFactory initialValue() {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            return factory;
+        }
+    };
+
+    private WellFormedness() {
+    }
+
+    static boolean isJson(String contentType) {
+        String type = mediaType(contentType);
+        return type.endsWith("/json") || type.endsWith("+json");
+    }
+
+    static boolean isXml(String contentType) {
+        String type = mediaType(contentType);
+        return type.endsWith("/xml") || type.endsWith("+xml");
+    }
+
+    private static String mediaType(String contentType) {
+        int semicolon = contentType.indexOf(';');
+        return (semicolon == -1 ? contentType : contentType.substring(0, semicolon)).trim().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Describes why the representation in node (inline or referenced) is malformed, or returns
+     * null when it is well-formed, absent, or of a type that isn't checked.
+     */
+    static String check(String contentType, JsonNode node, Loader loader) {
+        boolean json = isJson(contentType);
+        if (!json && !isXml(contentType)) {
+            return null;
+        }
+
+        JsonNode representation = node.path("representation");
+        JsonNode ref = node.path("representation-ref");
+        try {
+            if (!representation.isMissingNode()) {
+                return json ? checkJson(JSON.createParser(representation.asText())) : checkXml(XML.get().createXMLStreamReader(new StringReader(representation.asText())));
+            } else if (!ref.isMissingNode()) {
+                InputStream in = loader.load(ref.asText());
+                if (in == null) {
+                    return null;
+                }
+                try {
+                    return json ? checkJson(JSON.createParser(in)) : checkXml(XML.get().createXMLStreamReader(in));
+                } finally {
+                    in.close();
+                }
+            }
+            return null;
+        } catch (JsonProcessingException e) {
+            return "it is not well-formed JSON: " + e.getMessage();
+        } catch (XMLStreamException e) {
+            return "it is not well-formed XML: " + e.getMessage();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String checkJson(JsonParser parser) throws IOException {
+        try {
+            if (parser.nextToken() != null) {
+                parser.skipChildren();
+                if (parser.nextToken() != null) {
+                    return "it is not well-formed JSON: unexpected content after the root value at line " + parser.getCurrentLocation().getLineNr();
+                }
+            }
+            return null;
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static String checkXml(XMLStreamReader reader) throws XMLStreamException {
+        try {
+            while (reader.hasNext()) {
+                reader.next();
+            }
+            return null;
+        } finally {
+            reader.close();
+        }
+    }
+}
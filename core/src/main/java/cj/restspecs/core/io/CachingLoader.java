@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.core.io;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the contents of recently loaded files in a byte-bounded LRU in front of another
+ * {@link Loader}.  Entries can be revalidated against the delegate's modification time and size
+ * on every hit, so edits on disk are picked up; that is on by default only for a
+ * {@link FilesystemLoader}, where the check is a cheap stat rather than, say, a connection to a
+ * classpath resource.
+ */
+public class CachingLoader implements BufferLoader, MetadataLoader {
+    private final Loader delegate;
+    private final long maxBytes;
+    private final MetadataLoader revalidateWith;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static class Entry {
+        final byte[] contents;
+        final long lastModified;
+        final long size;
+
+        Entry(byte[] contents, long lastModified, long size) {
+            this.contents = contents;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+
+    public CachingLoader(Loader delegate, long maxBytes) {
+        this(delegate, maxBytes, delegate instanceof FilesystemLoader);
+    }
+
+    /**
+     * @param revalidate whether hits check the delegate's metadata for changes; ignored unless
+     *                   the delegate is a {@link MetadataLoader}
+     */
+    public CachingLoader(Loader delegate, long maxBytes, boolean revalidate) {
+        this.delegate = delegate;
+        this.maxBytes = maxBytes;
+        this.revalidateWith = revalidate && delegate instanceof MetadataLoader ? (MetadataLoader) delegate : null;
+    }
+
+    public InputStream load(String name) {
+        byte[] contents = contents(name);
+        return contents == null ? null : new ByteArrayInputStream(contents);
+    }
+
+    public ByteBuffer loadBuffer(String name) {
+        if (delegate instanceof BufferLoader && size(name) > maxBytes) {
+            misses.incrementAndGet();
+            return ((BufferLoader) delegate).loadBuffer(name);
+        }
+        byte[] contents = contents(name);
+        return contents == null ? null : ByteBuffer.wrap(contents).asReadOnlyBuffer();
+    }
+
+    private byte[] contents(String name) {
+        MetadataLoader metadata = revalidateWith;
+
+        synchronized (this) {
+            Entry cached = entries.get(name);
+            if (cached != null) {
+                if (metadata == null || (metadata.lastModified(name) == cached.lastModified && metadata.size(name) == cached.size)) {
+                    hits.incrementAndGet();
+                    return cached.contents;
+                }
+                entries.remove(name);
+                bytes -= cached.contents.length;
+            }
+        }
+        misses.incrementAndGet();
+
+        long lastModified = metadata == null ? 0 : metadata.lastModified(name);
+        long size = metadata == null ? 0 : metadata.size(name);
+        byte[] contents = read(name);
+        if (contents != null && contents.length <= maxBytes) {
+            synchronized (this) {
+                Entry previous = entries.put(name, new Entry(contents, lastModified, size));
+                if (previous != null) {
+                    bytes -= previous.contents.length;
+                }
+                bytes += contents.length;
+                evictDownTo(maxBytes);
+            }
+        }
+        return contents;
+    }
+
+    private byte[] read(String name) {
+        InputStream in = delegate.load(name);
+        if (in == null) {
+            return null;
+        }
+        try {
+            try {
+                return IOUtils.toByteArray(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + name, e);
+        }
+    }
+
+    private void evictDownTo(long limit) {
+        Iterator<Entry> eldestFirst = entries.values().iterator();
+        while (bytes > limit && eldestFirst.hasNext()) {
+            bytes -= eldestFirst.next().contents.length;
+            eldestFirst.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public boolean exists(String name) {
+        synchronized (this) {
+            if (entries.containsKey(name) && !(delegate instanceof MetadataLoader)) {
+                return true;
+            }
+        }
+        if (delegate instanceof MetadataLoader) {
+            return ((MetadataLoader) delegate).exists(name);
+        }
+        return contents(name) != null;
+    }
+
+    public long size(String name) {
+        if (delegate instanceof MetadataLoader) {
+            return ((MetadataLoader) delegate).size(name);
+        }
+        byte[] contents = contents(name);
+        return contents == null ? -1 : contents.length;
+    }
+
+    public long lastModified(String name) {
+        return delegate instanceof MetadataLoader ? ((MetadataLoader) delegate).lastModified(name) : 0;
+    }
+
+    public String digest(String name) {
+        byte[] contents = contents(name);
+        return contents == null ? null : Digests.sha1Hex(contents);
+    }
+
+    public synchronized void invalidate(String name) {
+        Entry removed = entries.remove(name);
+        if (removed != null) {
+            bytes -= removed.contents.length;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+}
@@ -37,10 +37,122 @@
  */
 package cj.restspecs.core.io;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.jar.JarEntry;
 
-public class ClasspathLoader implements Loader {
+public class ClasspathLoader implements MetadataLoader {
     public InputStream load(String name) {
         return getClass().getResourceAsStream(name);
     }
+
+    public boolean exists(String name) {
+        return getClass().getResource(name) != null;
+    }
+
+    public long size(String name) {
+        URL resource = getClass().getResource(name);
+        if (resource == null) {
+            return -1;
+        }
+        File file = asFile(resource);
+        if (file != null) {
+            return file.length();
+        }
+        JarEntry entry = jarEntry(resource);
+        if (entry != null) {
+            return entry.getSize();
+        }
+        URLConnection connection = connect(resource);
+        if (connection == null) {
+            return -1;
+        }
+        try {
+            return connection.getContentLengthLong();
+        } finally {
+            release(connection);
+        }
+    }
+
+    public long lastModified(String name) {
+        URL resource = getClass().getResource(name);
+        if (resource == null) {
+            return 0;
+        }
+        File file = asFile(resource);
+        if (file != null) {
+            return file.lastModified();
+        }
+        JarEntry entry = jarEntry(resource);
+        if (entry != null) {
+            return Math.max(entry.getTime(), 0);
+        }
+        URLConnection connection = connect(resource);
+        if (connection == null) {
+            return 0;
+        }
+        try {
+            return connection.getLastModified();
+        } finally {
+            release(connection);
+        }
+    }
+
+    public String digest(String name) {
+        return Digests.sha1Hex(load(name));
+    }
+
+    private static File asFile(URL resource) {
+        if (!"file".equals(resource.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(resource.toURI());
+        } catch (URISyntaxException e) {
+            return new File(resource.getPath());
+        }
+    }
+
+    /**
+     * The entry behind a jar: resource, read from the jar's central directory.  The JarFile is
+     * the one the JVM caches for the classpath, so nothing is opened per call or left to close.
+     */
+    private static JarEntry jarEntry(URL resource) {
+        if (!"jar".equals(resource.getProtocol())) {
+            return null;
+        }
+        try {
+            JarURLConnection connection = (JarURLConnection) resource.openConnection();
+            connection.setUseCaches(true);
+            return connection.getJarEntry();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void release(URLConnection connection) {
+        if (connection instanceof HttpURLConnection) {
+            ((HttpURLConnection) connection).disconnect();
+            return;
+        }
+        try {
+            connection.getInputStream().close();
+        } catch (IOException e) {
+            // nothing was open
+        }
+    }
+
+    private static URLConnection connect(URL resource) {
+        try {
+            return resource.openConnection();
+        } catch (IOException e) {
+            return null;
+        }
+    }
 }
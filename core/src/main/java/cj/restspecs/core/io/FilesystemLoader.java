@@ -40,21 +40,93 @@ package cj.restspecs.core.io;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+public class FilesystemLoader implements BufferLoader, MetadataLoader {
+    public static final long DEFAULT_MAPPING_THRESHOLD = 1024 * 1024;
 
-public class FilesystemLoader implements Loader {
     private final File rootPath;
+    private final long mappingThreshold;
 
     public FilesystemLoader(File rootPath) {
+        this(rootPath, DEFAULT_MAPPING_THRESHOLD);
+    }
+
+    /**
+     * @param mappingThreshold files of at least this many bytes are memory-mapped by
+     *                         {@link #loadBuffer(String)}; smaller ones are read onto the heap.
+     */
+    public FilesystemLoader(File rootPath, long mappingThreshold) {
         super();
         this.rootPath = rootPath;
+        this.mappingThreshold = mappingThreshold;
+    }
+
+    public File file(String name) {
+        return new File(rootPath, name);
     }
 
     public InputStream load(String name) {
         try {
-            return new FileInputStream(new File(rootPath, name));
+            return new FileInputStream(file(name));
         } catch (FileNotFoundException e) {
             throw new RuntimeException(e);
         }
     }
+
+    public boolean exists(String name) {
+        return file(name).exists();
+    }
+
+    public long size(String name) {
+        File file = file(name);
+        return file.exists() ? file.length() : -1;
+    }
+
+    public long lastModified(String name) {
+        return file(name).lastModified();
+    }
+
+    public String digest(String name) {
+        return exists(name) ? Digests.sha1Hex(load(name)) : null;
+    }
+
+    public FileChannel channel(String name) {
+        try {
+            return FileChannel.open(file(name).toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public ByteBuffer loadBuffer(String name) {
+        try {
+            FileChannel channel = channel(name);
+            try {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    // neither a heap buffer nor a single mapping can hold more than this
+                    throw new RuntimeException(file(name).getAbsolutePath() + " is " + size + " bytes, which is more than a ByteBuffer can hold; use load() to stream it instead");
+                }
+                if (size >= mappingThreshold) {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                }
+
+                ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                    // keep reading
+                }
+                buffer.flip();
+                return buffer.asReadOnlyBuffer();
+            } finally {
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -40,7 +40,7 @@ package cj.restspecs.core.io;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 
-public class StringLoader implements Loader {
+public class StringLoader implements MetadataLoader {
     private final String specJson;
 
     public StringLoader(String specJson) {
@@ -50,4 +50,20 @@ public class StringLoader implements Loader {
     public InputStream load(String name) {
         return new ByteArrayInputStream(specJson.getBytes());
     }
-}
\ No newline at end of file
+
+    public boolean exists(String name) {
+        return true;
+    }
+
+    public long size(String name) {
+        return specJson.getBytes().length;
+    }
+
+    public long lastModified(String name) {
+        return 0;
+    }
+
+    public String digest(String name) {
+        return Digests.sha1Hex(specJson.getBytes());
+    }
+}
@@ -37,10 +37,58 @@
  */
 package cj.restspecs.core.model;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public interface Representation {
     String contentType();
     InputStream data();
     String asText();
+
+    /**
+     * The size of the contents in bytes, when that is known without reading them, or -1.
+     */
+    default long size() {
+        return -1;
+    }
+
+    /**
+     * A read-only view of the contents.  Representations that keep their contents in memory
+     * return a view of those bytes rather than a copy.
+     */
+    default ByteBuffer byteBuffer() {
+        InputStream in = data();
+        if (in == null) {
+            return null;
+        }
+        try {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] chunk = new byte[8192];
+                for (int n = in.read(chunk); n != -1; n = in.read(chunk)) {
+                    out.write(chunk, 0, n);
+                }
+                return ByteBuffer.wrap(out.toByteArray()).asReadOnlyBuffer();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * A copy of the contents.
+     */
+    default byte[] bytes() {
+        ByteBuffer buffer = byteBuffer();
+        if (buffer == null) {
+            return null;
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
 }
@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecifications.core;
+
+import cj.restspecs.core.io.CachingLoader;
+import cj.restspecs.core.io.FilesystemLoader;
+import cj.restspecs.core.io.Loader;
+import cj.restspecs.core.io.MetadataLoader;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class CachingLoaderTest {
+    private File root;
+
+    @Before
+    public void createRoot() throws Exception {
+        root = File.createTempFile("caching-loader", ".dir");
+        FileUtils.forceDelete(root);
+        FileUtils.forceMkdir(root);
+    }
+
+    @After
+    public void deleteRoot() throws Exception {
+        FileUtils.deleteDirectory(root);
+    }
+
+    @Test
+    public void unchangedFilesAreServedFromMemory() throws Exception {
+        FileUtils.write(new File(root, "a.txt"), "apple");
+        CachingLoader loader = new CachingLoader(new FilesystemLoader(root), 1024);
+
+        assertEquals("apple", IOUtils.toString(loader.load("a.txt")));
+        assertEquals("apple", IOUtils.toString(loader.load("a.txt")));
+
+        assertEquals(1, loader.misses());
+        assertEquals(1, loader.hits());
+        assertEquals(5, loader.bytes());
+    }
+
+    @Test
+    public void filesThatChangeOnDiskAreReloaded() throws Exception {
+        File file = new File(root, "a.txt");
+        FileUtils.write(file, "apple");
+        CachingLoader loader = new CachingLoader(new FilesystemLoader(root), 1024);
+        loader.load("a.txt");
+
+        FileUtils.write(file, "banana");
+        file.setLastModified(file.lastModified() + 2000);
+
+        assertEquals("banana", IOUtils.toString(loader.load("a.txt")));
+        assertEquals(2, loader.misses());
+        assertEquals(0, loader.hits());
+        assertEquals(6, loader.bytes());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvictedToStayWithinTheByteLimit() throws Exception {
+        Loader tenBytesPerName = new Loader() {
+            public InputStream load(String name) {
+                return new ByteArrayInputStream("0123456789".getBytes());
+            }
+        };
+        CachingLoader loader = new CachingLoader(tenBytesPerName, 25);
+
+        loader.load("a");
+        loader.load("b");
+        loader.load("a");
+        loader.load("c");
+        loader.load("a");
+        loader.load("b");
+
+        assertEquals(2, loader.size());
+        assertEquals(2, loader.evictions());
+        assertEquals(2, loader.hits());
+        assertEquals(4, loader.misses());
+    }
+
+    @Test
+    public void onlyFileBackedDelegatesAreRevalidatedUnlessAskedTo() throws Exception {
+        CountingMetadataLoader delegate = new CountingMetadataLoader();
+
+        CachingLoader byDefault = new CachingLoader(delegate, 1024);
+        byDefault.load("a");
+        byDefault.load("a");
+        assertEquals(0, delegate.metadataCalls.get());
+        assertEquals(1, byDefault.hits());
+
+        CachingLoader optedIn = new CachingLoader(delegate, 1024, true);
+        optedIn.load("a");
+        delegate.metadataCalls.set(0);
+        optedIn.load("a");
+        assertEquals(2, delegate.metadataCalls.get());
+        assertEquals(1, optedIn.hits());
+    }
+
+    private static class CountingMetadataLoader implements MetadataLoader {
+        final AtomicInteger metadataCalls = new AtomicInteger();
+
+        public InputStream load(String name) {
+            return new ByteArrayInputStream("apple".getBytes());
+        }
+
+        public boolean exists(String name) {
+            return true;
+        }
+
+        public long size(String name) {
+            metadataCalls.incrementAndGet();
+            return 5;
+        }
+
+        public long lastModified(String name) {
+            metadataCalls.incrementAndGet();
+            return 1;
+        }
+
+        public String digest(String name) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecifications.core;
+
+import cj.restspecs.core.io.ClasspathLoader;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ClasspathLoaderTest {
+    private static final String RESOURCE = "/cj/restspecifications/test/otherFile.who";
+
+    @Test
+    public void describesResourcesWithoutLoadingThem() throws Exception {
+        ClasspathLoader loader = new ClasspathLoader();
+
+        assertTrue(loader.exists(RESOURCE));
+        assertEquals(9, loader.size(RESOURCE));
+        assertTrue(loader.lastModified(RESOURCE) > 0);
+        assertEquals("572c291421cd821a5e821e28766d0bdb719c379d", loader.digest(RESOURCE));
+    }
+
+    @Test
+    public void describesResourcesInsideJarsFromTheirEntries() throws Exception {
+        ClasspathLoader loader = new ClasspathLoader();
+        String inJunitJar = "/org/junit/Test.class";
+        InputStream contents = loader.load(inJunitJar);
+        int length;
+        try {
+            length = IOUtils.toByteArray(contents).length;
+        } finally {
+            contents.close();
+        }
+
+        assertEquals(length, loader.size(inJunitJar));
+        assertTrue(loader.lastModified(inJunitJar) > 0);
+    }
+
+    @Test
+    public void missingResourcesDoNotExist() throws Exception {
+        ClasspathLoader loader = new ClasspathLoader();
+
+        assertFalse(loader.exists("/no/such/resource"));
+        assertEquals(-1, loader.size("/no/such/resource"));
+        assertEquals(0, loader.lastModified("/no/such/resource"));
+        assertNull(loader.digest("/no/such/resource"));
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecifications.core;
+
+import cj.restspecs.core.RepresentationCache;
+import cj.restspecs.core.RestSpec;
+import cj.restspecs.core.io.FilesystemLoader;
+import cj.restspecs.core.model.Representation;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FilesystemLoaderTest {
+    private File root;
+
+    @Before
+    public void createRoot() throws Exception {
+        root = File.createTempFile("filesystem-loader", ".dir");
+        FileUtils.forceDelete(root);
+        FileUtils.forceMkdir(root);
+        FileUtils.write(new File(root, "body.txt"), "some body");
+        FileUtils.write(new File(root, "a.spec.json"), "{ \"url\": \"/some/path\", \"request\": { \"method\": \"GET\" }, " +
+                "\"response\": { \"statusCode\": 200, \"representation-ref\": \"/body.txt\" } }");
+    }
+
+    @After
+    public void deleteRoot() throws Exception {
+        FileUtils.deleteDirectory(root);
+    }
+
+    @Test
+    public void filesAtOrAboveTheThresholdAreMapped() throws Exception {
+        ByteBuffer mapped = new FilesystemLoader(root, 0).loadBuffer("/body.txt");
+        ByteBuffer read = new FilesystemLoader(root).loadBuffer("/body.txt");
+
+        assertTrue(mapped.isDirect());
+        assertTrue(mapped.isReadOnly());
+        assertFalse(read.isDirect());
+        assertTrue(read.isReadOnly());
+        assertEquals(mapped, read);
+    }
+
+    @Test
+    public void filesTooLargeForABufferAreRefused() throws Exception {
+        RandomAccessFile huge = new RandomAccessFile(new File(root, "huge.bin"), "rw");
+        try {
+            huge.setLength(Integer.MAX_VALUE + 1L);
+        } finally {
+            huge.close();
+        }
+
+        for (FilesystemLoader loader : new FilesystemLoader[]{new FilesystemLoader(root), new FilesystemLoader(root, Long.MAX_VALUE)}) {
+            try {
+                loader.loadBuffer("/huge.bin");
+                fail();
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage(), e.getMessage().endsWith("huge.bin is 2147483648 bytes, which is more than a ByteBuffer can hold; use load() to stream it instead"));
+            }
+        }
+    }
+
+    @Test
+    public void describesFilesWithoutLoadingThem() throws Exception {
+        FilesystemLoader loader = new FilesystemLoader(root);
+        File body = new File(root, "body.txt");
+
+        assertTrue(loader.exists("/body.txt"));
+        assertEquals(9, loader.size("/body.txt"));
+        assertEquals(body.lastModified(), loader.lastModified("/body.txt"));
+        assertEquals("754e8afdb33e180fbb7311eba784c5416766aa1c", loader.digest("/body.txt"));
+
+        assertFalse(loader.exists("/nothing.txt"));
+        assertEquals(-1, loader.size("/nothing.txt"));
+        assertEquals(0, loader.lastModified("/nothing.txt"));
+        assertNull(loader.digest("/nothing.txt"));
+    }
+
+    @Test
+    public void channelsAreOpenedForReading() throws Exception {
+        FileChannel channel = new FilesystemLoader(root).channel("/body.txt");
+        try {
+            assertEquals(9, channel.size());
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void representationsUseTheLoadersBuffers() throws Exception {
+        RestSpec spec = new RestSpec("/a.spec.json", new FilesystemLoader(root, 0));
+
+        Representation representation = spec.response().representation();
+
+        assertTrue(representation.byteBuffer().isDirect());
+        assertEquals("some body", representation.asText());
+        assertEquals("some body", IOUtils.toString(representation.data()));
+    }
+
+    @Test
+    public void representationsReportTheirSizeWithoutLoading() throws Exception {
+        RestSpec spec = new RestSpec("/a.spec.json", new FilesystemLoader(root), RepresentationCache.none());
+
+        assertEquals(9, spec.response().representation().size());
+    }
+}
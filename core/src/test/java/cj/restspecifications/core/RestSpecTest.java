@@ -37,14 +37,20 @@
  */
 package cj.restspecifications.core;
 
+import cj.restspecs.core.CompiledRestSpec;
+import cj.restspecs.core.RepresentationCache;
 import cj.restspecs.core.RestSpec;
+import cj.restspecs.core.UrlTemplate;
 import cj.restspecs.core.io.Loader;
 import cj.restspecs.core.io.StringLoader;
 import cj.restspecs.core.model.Header;
+import cj.restspecs.core.model.Representation;
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -287,6 +293,49 @@ public class RestSpecTest {
         assertEquals("the resource for fun", spec.name());
     }
 
+    @Test
+    public void representationRefsAreReadOnceAndThenServedFromTheCache() throws Exception {
+        final String specJson = "{ \"url\": \"/some/path\", \"request\": { \"method\": \"GET\" }, " +
+                "\"response\": { \"statusCode\": 200, \"representation-ref\": \"/body.txt\" } }";
+        final List<String> loads = new ArrayList<String>();
+        Loader countingLoader = new Loader() {
+            public InputStream load(String name) {
+                loads.add(name);
+                return new ByteArrayInputStream((name.endsWith(".txt") ? "some body" : specJson).getBytes());
+            }
+        };
+        RepresentationCache cache = RepresentationCache.lru(1024);
+        RestSpec spec = new RestSpec("a.spec.json", countingLoader, cache);
+
+        Representation representation = spec.response().representation();
+
+        assertEquals("some body", representation.asText());
+        assertEquals("some body", IOUtils.toString(representation.data()));
+        assertEquals(9, representation.byteBuffer().remaining());
+        assertEquals(asList("a.spec.json", "/body.txt"), loads);
+        assertEquals(1, cache.size());
+        assertEquals(9, cache.bytes());
+    }
+
+    @Test
+    public void lruRepresentationCachesEvictTheLeastRecentlyUsedBodies() throws Exception {
+        final String specJson = "{ \"url\": \"/some/path\", \"request\": { \"method\": \"GET\" }, " +
+                "\"response\": { \"statusCode\": 200, \"representation-ref\": \"/body.txt\" } }";
+        Loader loader = new Loader() {
+            public InputStream load(String name) {
+                return new ByteArrayInputStream((name.endsWith(".txt") ? "0123456789" : specJson).getBytes());
+            }
+        };
+        RepresentationCache cache = RepresentationCache.lru(25);
+
+        for (int x = 0; x < 3; x++) {
+            new RestSpec("a.spec.json", loader, cache).response().representation().asText();
+        }
+
+        assertEquals(2, cache.size());
+        assertEquals(20, cache.bytes());
+    }
+
     @Test
     public void givesUsersAWayToListTheHeaders() throws Exception {
         // GIVEN: a spec for a get request with no representation
@@ -334,6 +383,34 @@ public class RestSpecTest {
         assertHeaders(expectedResponseHeaders, spec.response().header());
     }
 
+    @Test
+    public void headerFieldsAreLookedUpWithoutRegardToCase() throws Exception {
+        final String specJson = "{ \"url\": \"/some/path\", \"request\": { \"method\": \"GET\" }, " +
+                "\"response\": { \"statusCode\": 200, \"header\": { \"content-type\": \"text/plain\" }, \"representation\": \"hi\" } }";
+        RestSpec spec = new RestSpec("dummyName", new StringLoader(specJson));
+
+        Header header = spec.response().header();
+
+        assertThat(header.fieldNames(), equalTo(asList("content-type")));
+        assertThat(header.fieldsNamed("Content-Type"), equalTo(asList("text/plain")));
+        assertThat(header.fieldsNamed("CONTENT-TYPE"), sameInstance(header.fieldsNamed("content-type")));
+        assertTrue(header.fieldsNamed("Accept").isEmpty());
+        assertEquals("text/plain", spec.response().representation().contentType());
+    }
+
+    @Test
+    public void headerFieldNamesThatDifferOnlyInCaseAreListedOnce() throws Exception {
+        final String specJson = "{ \"url\": \"/some/path\", \"request\": { \"method\": \"GET\" }, " +
+                "\"response\": { \"statusCode\": 200, \"header\": { \"Set-Cookie\": \"a=1\", \"Vary\": \"Accept\", \"set-cookie\": \"b=2\" } } }";
+        RestSpec spec = new RestSpec("dummyName", new StringLoader(specJson));
+
+        Header header = spec.response().header();
+
+        assertThat(header.fieldNames(), equalTo(asList("Set-Cookie", "Vary")));
+        assertThat(header.fieldsNamed("Set-Cookie"), equalTo(asList("a=1", "b=2")));
+        assertThat(header.fieldsNamed("set-cookie"), equalTo(asList("a=1", "b=2")));
+    }
+
     private void assertHeaders(String[][] expected, Header actual) {
         List<String> names = actual.fieldNames();
         assertEquals(expected.length, names.size());
@@ -446,6 +523,31 @@ public class RestSpecTest {
         assertThat(restSpecWithRightReplacement.replacedPath(), equalTo("/path?leftParameter=lefty&rightParameter=righty"));
     }
     
+    @Test
+    public void urlTemplatesCanBeBoundAndRenderedRepeatedly() {
+        String specJson = "{ \"url\": \"/foo/{var1}/bar/{var2}?again={var1}\" }";
+        RestSpec restSpec = new RestSpec("spec", new StringLoader(specJson));
+
+        UrlTemplate template = restSpec.urlTemplate();
+        UrlTemplate.Binding binding = template.bind();
+
+        assertThat(template.placeholders(), equalTo(asList("{var1}", "{var2}")));
+        assertThat(binding.set("{var1}", 1).set("{var2}", "two").render(), equalTo("/foo/1/bar/two?again=1"));
+        assertThat(binding.set("{var1}", 3).render(), equalTo("/foo/3/bar/two?again=3"));
+        assertThat(binding.clear().set("{var2}", 4).render(), equalTo("/foo/{var1}/bar/4?again={var1}"));
+    }
+
+    @Test
+    public void pathReplacementStillAcceptsPlainTextKeys() {
+        String specJson = "{ \"url\": \"/foo/{var1}/bar\" }";
+        RestSpec restSpec = new RestSpec("spec", new StringLoader(specJson));
+
+        RestSpec replaced = restSpec.withParameter("bar", "baz").withParameter("{var1}", 1);
+
+        assertThat(replaced.replacedPath(), equalTo("/foo/1/baz"));
+        assertThat(restSpec.getPathReplacedWith("foo", "qux"), equalTo("/qux/{var1}/bar"));
+    }
+
     @Test
     public void pathSegmentParsingWorks() {
         String specJson = "{ \"url\": \"/path/with/segments?extraStuffIShouldNeverSee\"}";
@@ -482,6 +584,50 @@ public class RestSpecTest {
         }
     }
 
+    @Test
+    public void fieldsThatAreNotPartOfTheSpecFormatAreRejected() throws Exception {
+        String[] specsWithUnknownFields = {
+                "{ \"url\": \"/typo\", \"reqest\": { \"method\": \"GET\" } }",
+                "{ \"url\": \"/typo\", \"response\": { \"statusCode\": 200, \"headers\": {} } }"
+        };
+        String[] expectedMessages = {
+                "Field 'reqest' is not allowed",
+                "Field 'headers' is not allowed"
+        };
+
+        for (int x = 0; x < specsWithUnknownFields.length; x++) {
+            try {
+                new RestSpec("typoSpecJson", new StringLoader(specsWithUnknownFields[x]));
+                fail("Did not reject unknown field in " + specsWithUnknownFields[x]);
+            } catch (RuntimeException cause) {
+                assertThat(cause.getMessage(), equalTo(expectedMessages[x]));
+            }
+        }
+    }
+
+    @Test
+    public void compiledSpecsExposeTheDecomposedRequestAndResponse() {
+        String specJson = "{ \"url\": \"/things/{id}?color=red\", " +
+                "\"request\": { \"method\": \"GET\", \"header\": { \"Accept\": \"text/plain\" } }, " +
+                "\"response\": { \"statusCode\": 200, \"header\": { \"Content-Type\": \"text/plain\" }, \"representation\": \"red thing\" } }";
+        RestSpec spec = new RestSpec("compiledSpecJson", new StringLoader(specJson)).withParameter("{id}", 42);
+
+        CompiledRestSpec compiled = spec.compile();
+
+        assertThat(compiled, sameInstance(spec.compile()));
+        assertThat(compiled.method(), equalTo("GET"));
+        assertThat(compiled.url(), equalTo("/things/{id}?color=red"));
+        assertThat(compiled.path(), equalTo("/things/42"));
+        assertThat(compiled.queryString(), equalTo("?color=red"));
+        assertThat(compiled.queryParameters().value("color"), equalTo("red"));
+        assertThat(compiled.pathSegments(), equalTo(asList("things", "{id}", "color=red")));
+        assertThat(compiled.requestHeader().fieldsNamed("Accept"), equalTo(asList("text/plain")));
+        assertThat(compiled.statusCode(), equalTo(200));
+        assertThat(compiled.responseRepresentation().contentType(), equalTo("text/plain"));
+        assertThat(compiled.responseRepresentation().asText(), equalTo("red thing"));
+        assertThat(spec.response(), sameInstance(spec.response()));
+    }
+
     @Test
     public void getAllQueryParameterNamesFromUrl() {
         String lotsaNamesSpecJson = "{ \"url\": \"/?a=b&b=c&c=d\" }";
@@ -513,6 +659,28 @@ public class RestSpecTest {
         assertThat(spec.queryParameters().values("answer"), equalTo(asList("yes", "no", "maybe")));
     }
 
+    @Test
+    public void queryParametersAreDecodedOnlyWhenTheyContainEscapes() {
+        String escapedSpecJson = "{ \"url\": \"/search/{id}?q=fish+%26+chips&plain=as-is&q=%7Bx%7D\" }";
+        RestSpec spec = new RestSpec("escapedSpecJson", new StringLoader(escapedSpecJson));
+
+        assertThat(spec.queryParameters().names(), equalTo(asList("q", "plain")));
+        assertThat(spec.queryParameters().values("q"), equalTo(asList("fish & chips", "{x}")));
+        assertThat(spec.queryParameterValue("plain"), equalTo("as-is"));
+    }
+
+    @Test
+    public void derivedSpecsShareQueryParametersWhenTheQueryIsUnchanged() {
+        String specJson = "{ \"url\": \"/things/{id}?color={color}\" }";
+        RestSpec spec = new RestSpec("specJson", new StringLoader(specJson));
+
+        RestSpec withId = spec.withParameter("{id}", 7);
+        RestSpec withColor = withId.withParameter("{color}", "red");
+
+        assertThat(withId.queryParameters(), sameInstance(spec.queryParameters()));
+        assertThat(withColor.queryParameterValue("color"), equalTo("red"));
+    }
+
     @Test
     public void whenAskingForAQueryParameterNameThatDoesNotExistThrowAnExceptionBecauseYouProbablyHaveATestLogicError() {
         String badSpecJson = "{ \"url\": \"/spelling?mistake=not-me\" }";
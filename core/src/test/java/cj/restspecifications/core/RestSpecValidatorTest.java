@@ -0,0 +1,446 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecifications.core;
+
+import cj.restspecs.core.RestSpecValidator;
+import cj.restspecs.core.ValidationReport;
+import cj.restspecs.core.io.FilesystemLoader;
+import cj.restspecs.core.io.Loader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RestSpecValidatorTest {
+    private File root;
+    private ForkJoinPool pool;
+    private ByteArrayOutputStream output;
+
+    @Before
+    public void createRoot() throws Exception {
+        root = File.createTempFile("validator", ".dir");
+        FileUtils.forceDelete(root);
+        FileUtils.forceMkdir(root);
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void deleteRoot() throws Exception {
+        pool.shutdown();
+        FileUtils.deleteDirectory(root);
+    }
+
+    private void spec(String path, String name, String ref) throws Exception {
+        FileUtils.write(new File(root, path), "{ \"name\": \"" + name + "\", \"url\": \"/" + name + "\", \"request\": { \"method\": \"GET\" }, " +
+                "\"response\": { \"statusCode\": 200, \"header\": { \"Content-Type\": \"text/plain\" }, \"representation-ref\": \"" + ref + "\" } }");
+    }
+
+    private String validate(String... ignores) {
+        return validate(null, ignores);
+    }
+
+    private String validate(File stateFile, String... ignores) {
+        output = new ByteArrayOutputStream();
+        try {
+            new RestSpecValidator(root, new FilesystemLoader(root), new PrintStream(output), pool).validate(Arrays.asList(ignores), stateFile);
+            return null;
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Test
+    public void validatesManySpecsInParallel() throws Exception {
+        for (int x = 0; x < 50; x++) {
+            spec("dir" + (x % 5) + "/spec" + x + ".spec.json", "spec" + x, "/bodies/body" + x + ".txt");
+            FileUtils.write(new File(root, "bodies/body" + x + ".txt"), "body " + x);
+        }
+
+        assertEquals(null, validate());
+    }
+
+    @Test
+    public void referencesAreResolvedAgainstTheScannedFiles() throws Exception {
+        spec("a.spec.json", "a", "/missing.txt");
+
+        String message = validate();
+
+        assertTrue(message, message.startsWith("There was an error parsing a.spec.json :Spec references nonexistent file: "));
+        assertTrue(message, message.endsWith("missing.txt"));
+    }
+
+    @Test
+    public void duplicateNamesAreReported() throws Exception {
+        spec("a.spec.json", "same", "/body.txt");
+        spec("b.spec.json", "same", "/body.txt");
+        FileUtils.write(new File(root, "body.txt"), "body");
+
+        String message = validate();
+
+        assertTrue(message, message.endsWith("There is more than one spec named \"same\""));
+    }
+
+    @Test
+    public void orphansAreReported() throws Exception {
+        spec("a.spec.json", "a", "/body.txt");
+        FileUtils.write(new File(root, "body.txt"), "body");
+        FileUtils.write(new File(root, "orphan.txt"), "nobody");
+
+        String message = validate();
+
+        assertTrue(message, message.startsWith("VALIDATION ERROR: The following 1 file(s) are not expected:"));
+        assertTrue(message, message.endsWith("orphan.txt"));
+    }
+
+    @Test
+    public void specsThatFailAreReportedByFile() throws Exception {
+        FileUtils.write(new File(root, "broken.spec.json"), "{ \"name\": \"broken\", \"url\": \"/broken\" }");
+
+        String message = validate();
+
+        assertTrue(message, message.contains("broken.spec.json: Spec is missing a 'response'"));
+    }
+
+    @Test
+    public void scansFilesInPathOrder() throws Exception {
+        FileUtils.write(new File(root, "b/z.txt"), "");
+        FileUtils.write(new File(root, "b/a/c.spec.json"), "");
+        FileUtils.write(new File(root, "a.spec.json"), "");
+
+        RestSpecValidator.FileScanningResult scan = RestSpecValidator.scan(root);
+
+        assertEquals(Arrays.asList("a.spec.json", "b/a/c.spec.json", "b/z.txt"), keys(scan.allFiles));
+        assertEquals(Arrays.asList("a.spec.json", "b/a/c.spec.json"), keys(scan.specDotJsFiles));
+        assertEquals(new RestSpecValidator.Path("b/a/c.spec.json"), scan.specDotJsFiles.get(1));
+    }
+
+    @Test
+    public void excludedDirectoriesAreNeverEntered() throws Exception {
+        spec("a.spec.json", "a", "/body.txt");
+        FileUtils.write(new File(root, "body.txt"), "body");
+        FileUtils.write(new File(root, "drafts/broken.spec.json"), "{");
+        FileUtils.write(new File(root, "drafts/orphan.txt"), "nobody");
+
+        assertEquals(null, validate("/drafts"));
+        assertEquals(Arrays.asList("a.spec.json", "body.txt"), keys(RestSpecValidator.scan(root, Arrays.asList("drafts/")).allFiles));
+    }
+
+    @Test
+    public void referencesIntoExcludedDirectoriesStillResolve() throws Exception {
+        spec("a.spec.json", "a", "/shared/body.txt");
+        FileUtils.write(new File(root, "shared/body.txt"), "body");
+        spec("b.spec.json", "b", "/shared/missing.txt");
+
+        String message = validate("/shared");
+
+        assertTrue(message, message.startsWith("There was an error parsing b.spec.json :Spec references nonexistent file: "));
+        assertTrue(message, message.endsWith("missing.txt"));
+    }
+
+    @Test
+    public void unchangedSpecsReuseTheirPreviousResults() throws Exception {
+        File state = new File(root.getParentFile(), root.getName() + ".state.json");
+        try {
+            spec("a.spec.json", "a", "/a.txt");
+            spec("b.spec.json", "b", "/b.txt");
+            FileUtils.write(new File(root, "a.txt"), "a");
+            FileUtils.write(new File(root, "b.txt"), "b");
+
+            assertEquals(null, validate(state));
+            assertTrue(output.toString(), output.toString().contains("Reused 0 of 2 results"));
+
+            assertEquals(null, validate(state));
+            assertTrue(output.toString(), output.toString().contains("Reused 2 of 2 results"));
+
+            FileUtils.write(new File(root, "b.txt"), "a different b");
+            assertEquals(null, validate(state));
+            assertTrue(output.toString(), output.toString().contains("Reused 1 of 2 results"));
+
+            FileUtils.write(new File(root, "orphan.txt"), "nobody");
+            String message = validate(state);
+            assertTrue(output.toString(), output.toString().contains("Reused 2 of 2 results"));
+            assertTrue(message, message.startsWith("VALIDATION ERROR: The following 1 file(s) are not expected:"));
+        } finally {
+            FileUtils.deleteQuietly(state);
+        }
+    }
+
+    @Test
+    public void specsEditedWhileBeingCheckedAreCheckedAgain() throws Exception {
+        File state = new File(root.getParentFile(), root.getName() + ".state.json");
+        final File spec = new File(root, "a.spec.json");
+        try {
+            specWithBody("a.spec.json", "application/json", "\"representation-ref\": \"/a.json\"");
+            FileUtils.write(new File(root, "a.json"), "{}");
+            FilesystemLoader editsTheSpecMidCheck = new FilesystemLoader(root) {
+                private boolean edited;
+
+                @Override
+                public InputStream load(String name) {
+                    if (name.equals("/a.json") && !edited) {
+                        edited = true;
+                        try {
+                            FileUtils.write(spec, FileUtils.readFileToString(spec).replace("\"statusCode\": 200", "\"statusCode\":  200"));
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                    return super.load(name);
+                }
+            };
+
+            new RestSpecValidator(root, editsTheSpecMidCheck, new PrintStream(new ByteArrayOutputStream()), pool).validate(Collections.<String>emptyList(), state);
+            assertEquals(null, validate(state));
+
+            assertTrue(output.toString(), output.toString().contains("Reused 0 of 1 results"));
+        } finally {
+            FileUtils.deleteQuietly(state);
+        }
+    }
+
+    @Test
+    public void stateIsOnlyKeptForLoadersThatDescribeFiles() throws Exception {
+        File state = new File(root.getParentFile(), root.getName() + ".state.json");
+        spec("a.spec.json", "a", "/a.txt");
+        FileUtils.write(new File(root, "a.txt"), "a");
+        final FilesystemLoader files = new FilesystemLoader(root);
+        Loader loader = new Loader() {
+            public InputStream load(String name) {
+                return files.load(name);
+            }
+        };
+
+        new RestSpecValidator(root, loader, new PrintStream(new ByteArrayOutputStream()), pool).validate(Collections.<String>emptyList(), state);
+
+        assertFalse(state.exists());
+    }
+
+    @Test
+    public void reusedFailuresAreStillReported() throws Exception {
+        File state = new File(root.getParentFile(), root.getName() + ".state.json");
+        try {
+            FileUtils.write(new File(root, "broken.spec.json"), "{ \"name\": \"broken\", \"url\": \"/broken\" }");
+
+            String first = validate(state);
+            String second = validate(state);
+
+            assertTrue(output.toString(), output.toString().contains("Reused 1 of 1 results"));
+            assertEquals(first, second);
+        } finally {
+            FileUtils.deleteQuietly(state);
+        }
+    }
+
+    @Test
+    public void reportsRecordEveryErrorAndTiming() throws Exception {
+        spec("a.spec.json", "same", "/body.txt");
+        spec("b.spec.json", "same", "/body.txt");
+        spec("c.spec.json", "c", "/missing.txt");
+        FileUtils.write(new File(root, "body.txt"), "body");
+        ValidationReport report = new ValidationReport();
+
+        try {
+            new RestSpecValidator(root, new FilesystemLoader(root), new PrintStream(new ByteArrayOutputStream()), pool).validate(Collections.<String>emptyList(), null, report);
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals(report.errors().get(0), e.getMessage());
+        }
+
+        assertEquals(2, report.errors().size());
+        assertEquals(4, report.fileCount());
+        assertEquals(1, report.referencedFileCount());
+        assertEquals(3, report.specs().size());
+        assertEquals("c.spec.json", report.specs().get(2).path);
+        assertTrue(report.specs().get(2).error.startsWith("There was an error parsing c.spec.json"));
+        assertTrue(report.specs().get(0).parseNanos > 0);
+        assertTrue(report.specs().get(0).bytes > 0);
+
+        File json = new File(root, "reports/report.json");
+        File xml = new File(root, "reports/TEST-report.xml");
+        report.writeJson(json);
+        report.writeJUnitXml(xml);
+
+        JsonNode written = new ObjectMapper().readTree(json);
+        assertEquals(3, written.path("specs").asInt());
+        assertEquals(2, written.path("errors").size());
+        assertEquals("b.spec.json", written.path("specFiles").path(1).path("path").asText());
+        String junit = FileUtils.readFileToString(xml);
+        assertTrue(junit, junit.contains("<testsuite name=\"restspecs\" tests=\"3\" failures=\"2\""));
+        assertTrue(junit, junit.contains("<testcase classname=\"restspecs.specs\" name=\"a.spec.json\""));
+        assertFalse("the run stopped before looking for orphans", junit.contains("orphans"));
+    }
+
+    private void specWithBody(String path, String contentType, String body) throws Exception {
+        FileUtils.write(new File(root, path), "{ \"name\": \"" + path + "\", \"url\": \"/" + path + "\", \"request\": { \"method\": \"GET\" }, " +
+                "\"response\": { \"statusCode\": 200, \"header\": { \"Content-Type\": \"" + contentType + "\" }, " + body + " } }");
+    }
+
+    @Test
+    public void wellFormedBodiesPass() throws Exception {
+        specWithBody("a.spec.json", "application/json; charset=utf-8", "\"representation-ref\": \"/a.json\"");
+        specWithBody("b.spec.json", "application/atom+xml", "\"representation\": \"<feed><entry id='1'/></feed>\"");
+        specWithBody("c.spec.json", "text/plain", "\"representation\": \"{ not json\"");
+        FileUtils.write(new File(root, "a.json"), "{ \"items\": [1, 2, {\"three\": [3]}] }\n");
+
+        assertEquals(null, validate());
+    }
+
+    @Test
+    public void malformedJsonBodiesAreReported() throws Exception {
+        specWithBody("a.spec.json", "application/json", "\"representation-ref\": \"/a.json\"");
+        FileUtils.write(new File(root, "a.json"), "{ \"items\": [1, 2 }");
+
+        String message = validate();
+
+        assertTrue(message, message.contains("a.spec.json: its response representation is malformed; it is not well-formed JSON: "));
+    }
+
+    @Test
+    public void missingJsonReferencesAreReportedAsNonexistent() throws Exception {
+        specWithBody("a.spec.json", "application/json", "\"representation-ref\": \"/missing.json\"");
+
+        String message = validate();
+
+        assertTrue(message, message.startsWith("There was an error parsing a.spec.json :Spec references nonexistent file: "));
+        assertTrue(message, message.endsWith("missing.json"));
+    }
+
+    @Test
+    public void trailingJsonContentIsReported() throws Exception {
+        specWithBody("a.spec.json", "application/json", "\"representation\": \"{} {}\"");
+
+        String message = validate();
+
+        assertTrue(message, message.contains("unexpected content after the root value"));
+    }
+
+    @Test
+    public void malformedXmlBodiesAreReported() throws Exception {
+        specWithBody("a.spec.json", "text/xml", "\"representation\": \"<feed><entry></feed>\"");
+
+        String message = validate();
+
+        assertTrue(message, message.contains("a.spec.json: its response representation is malformed; it is not well-formed XML: "));
+    }
+
+    private void route(String path, String method, String url) throws Exception {
+        FileUtils.write(new File(root, path), "{ \"name\": \"" + path + "\", \"url\": \"" + url + "\", \"request\": { \"method\": \"" + method + "\" }, " +
+                "\"response\": { \"statusCode\": 200 } }");
+    }
+
+    @Test
+    public void routesWithTheSameShapeAreReported() throws Exception {
+        route("a.spec.json", "GET", "/users/{id}?verbose={v}");
+        route("b.spec.json", "GET", "/users/{userId}?verbose={flag}");
+        route("c.spec.json", "GET", "/users/me?verbose=true");
+        route("f.spec.json", "GET", "/users/{userId}?verbose=true");
+        route("d.spec.json", "PUT", "/users/{id}?verbose=true");
+        route("e.spec.json", "GET", "/users/{id}");
+        ValidationReport report = new ValidationReport();
+
+        new RestSpecValidator(root, new FilesystemLoader(root), new PrintStream(new ByteArrayOutputStream()), pool).validate(Collections.<String>emptyList(), null, report);
+
+        assertEquals(Arrays.asList("Ambiguous route GET /users/{}?verbose={}: b.spec.json declares the same route as a.spec.json, so it can never be served"), report.routeConflicts());
+
+        String junit = junitXmlOf(report);
+        assertTrue("warnings don't fail the suite: " + junit, junit.contains("<testsuite name=\"restspecs\" tests=\"8\" failures=\"0\""));
+        assertTrue(junit, junit.contains("<testcase classname=\"restspecs.routes\" name=\"conflicts\" time=\"0.000\"><system-out>Ambiguous route GET"));
+        assertTrue(junit, junit.contains("<testcase classname=\"restspecs.files\" name=\"orphans\""));
+
+        ValidationReport errors = new ValidationReport();
+        String message = null;
+        try {
+            new RestSpecValidator(root, new FilesystemLoader(root), new PrintStream(new ByteArrayOutputStream()), pool).withRouteConflictsAsErrors(true).validate(Collections.<String>emptyList(), null, errors);
+        } catch (RuntimeException e) {
+            message = e.getMessage();
+        }
+        assertEquals(report.routeConflicts().get(0), message);
+
+        junit = junitXmlOf(errors);
+        assertTrue(junit, junit.contains("<testsuite name=\"restspecs\" tests=\"7\" failures=\"1\""));
+        assertTrue(junit, junit.contains("<testcase classname=\"restspecs.routes\" name=\"conflicts\" time=\"0.000\"><failure message=\"Ambiguous route GET"));
+    }
+
+    private String junitXmlOf(ValidationReport report) throws Exception {
+        File xml = new File(root.getParentFile(), root.getName() + ".TEST-report.xml");
+        try {
+            report.writeJUnitXml(xml);
+            return FileUtils.readFileToString(xml);
+        } finally {
+            FileUtils.deleteQuietly(xml);
+        }
+    }
+
+    @Test
+    public void routesThatDifferOnlyInALiteralQueryValueDoNotConflict() throws Exception {
+        route("a.spec.json", "GET", "/search?q=shoes");
+        route("b.spec.json", "GET", "/search?q=boots");
+        route("c.spec.json", "GET", "/search?q={q}");
+        ValidationReport report = new ValidationReport();
+
+        new RestSpecValidator(root, new FilesystemLoader(root), new PrintStream(new ByteArrayOutputStream()), pool).validate(Collections.<String>emptyList(), null, report);
+
+        assertEquals(Collections.<String>emptyList(), report.routeConflicts());
+    }
+
+    private static List<String> keys(List<RestSpecValidator.Path> paths) {
+        List<String> keys = new ArrayList<String>();
+        for (RestSpecValidator.Path next : paths) {
+            keys.add(next.toString());
+        }
+        return keys;
+    }
+}
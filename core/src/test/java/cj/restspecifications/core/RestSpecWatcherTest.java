@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecifications.core;
+
+import cj.restspecs.core.RestSpecValidator;
+import cj.restspecs.core.RestSpecWatcher;
+import cj.restspecs.core.io.FilesystemLoader;
+import cj.restspecs.core.io.Loader;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RestSpecWatcherTest {
+    private File root;
+    private ByteArrayOutputStream output;
+    private RestSpecWatcher watcher;
+    private Thread thread;
+    private int seen;
+
+    @Before
+    public void startWatching() throws Exception {
+        root = File.createTempFile("watcher", ".dir");
+        FileUtils.forceDelete(root);
+        FileUtils.forceMkdir(root);
+        FileUtils.write(new File(root, "a.spec.json"), "{ \"name\": \"a\", \"url\": \"/a\", \"request\": { \"method\": \"GET\" }, \"response\": { \"statusCode\": 200 } }");
+        specWithRef("b", "/b.txt");
+        specWithRef("c", "/c.txt");
+        FileUtils.write(new File(root, "b.txt"), "b");
+        FileUtils.write(new File(root, "c.txt"), "c");
+
+        watch(new FilesystemLoader(root));
+    }
+
+    private void watch(Loader loader) {
+        output = new ByteArrayOutputStream();
+        seen = 0;
+        watcher = new RestSpecWatcher(new RestSpecValidator(root, loader, new PrintStream(output, true)), Collections.<String>emptyList(), 10);
+        thread = new Thread(new Runnable() {
+            public void run() {
+                watcher.run();
+            }
+        });
+        thread.start();
+    }
+
+    @After
+    public void stopWatching() throws Exception {
+        stop();
+        FileUtils.deleteDirectory(root);
+    }
+
+    private void stop() throws Exception {
+        watcher.close();
+        thread.join(10000);
+    }
+
+    private void specWithRef(String name, String ref) throws Exception {
+        FileUtils.write(new File(root, name + ".spec.json"), "{ \"name\": \"" + name + "\", \"url\": \"/" + name + "\", \"request\": { \"method\": \"GET\" }, " +
+                "\"response\": { \"statusCode\": 200, \"header\": { \"Content-Type\": \"text/plain\" }, \"representation-ref\": \"" + ref + "\" } }");
+    }
+
+    /**
+     * Waits for a line starting with prefix that hasn't been seen yet, and returns the output
+     * from the previous wait up to the end of that line.
+     */
+    private String awaitLine(String prefix) throws Exception {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (System.currentTimeMillis() < deadline) {
+            String text = output.toString();
+            int start = seen;
+            while (start < text.length()) {
+                int end = text.indexOf('\n', start);
+                if (end == -1) {
+                    break;
+                }
+                if (text.startsWith(prefix, start)) {
+                    String chunk = text.substring(seen, end + 1);
+                    seen = end + 1;
+                    return chunk;
+                }
+                start = end + 1;
+            }
+            Thread.sleep(10);
+        }
+        fail("No line starting with '" + prefix + "' in\n" + output.toString().substring(seen));
+        return null;
+    }
+
+    @Test
+    public void revalidatesWhenFilesChange() throws Exception {
+        awaitLine("VALID (");
+
+        FileUtils.write(new File(root, "orphan.txt"), "nobody");
+        String run = awaitLine("INVALID (");
+        assertTrue(run, run.contains("Reused 3 of 3 results"));
+
+        FileUtils.forceDelete(new File(root, "orphan.txt"));
+        FileUtils.write(new File(root, "a.spec.json"), "{ \"name\": \"a\" }");
+        String last;
+        do {
+            last = awaitLine("INVALID (");
+        } while (!last.contains("Spec is missing a 'url'"));
+    }
+
+    @Test
+    public void loadersThatCantDescribeFilesAreRevalidatedInFull() throws Exception {
+        awaitLine("VALID (");
+        stop();
+        final FilesystemLoader files = new FilesystemLoader(root);
+        watch(new Loader() {
+            public InputStream load(String name) {
+                return files.load(name);
+            }
+        });
+        awaitLine("VALID (");
+
+        FileUtils.write(new File(root, "b.txt"), "a different b");
+        String run = awaitLine("VALID (");
+
+        assertTrue(run, run.contains("Changed: [b.txt]"));
+        assertFalse(run, run.contains("Reused"));
+    }
+
+    @Test
+    public void onlySpecsReferencingAChangedFileAreRechecked() throws Exception {
+        awaitLine("VALID (");
+
+        FileUtils.write(new File(root, "b.txt"), "a different b");
+        String run = awaitLine("VALID (");
+
+        assertTrue(run, run.contains("Changed: [b.txt]"));
+        assertTrue(run, run.contains("Reused 2 of 3 results"));
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecifications.core;
+
+import cj.restspecs.core.RouteTable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RouteTableTest {
+
+    @Test
+    public void routeTablesAreKeyedByShape() {
+        RouteTable<String> routes = new RouteTable<String>();
+
+        assertEquals(null, routes.add("GET", "/a/{x}/c", "first"));
+        assertEquals(null, routes.add("GET", "/a/b/c", "second"));
+        assertEquals(null, routes.add("GET", "/a/{x}.json", "third"));
+        assertEquals(null, routes.add("GET", "/a/{x}/c?q=1", "fourth"));
+        assertEquals("first", routes.add("GET", "/a/{y}/c#fragment", "fifth"));
+        assertEquals("fourth", routes.add("GET", "/a/{y}/c?q=1", "sixth"));
+        assertEquals(null, routes.add("GET", "/a/{y}/c?q={z}", "seventh"));
+        assertEquals("seventh", routes.add("GET", "/a/{x}/c?q={q}", "eighth"));
+
+        assertEquals(5, routes.size());
+        assertEquals("/a/{}.json", RouteTable.shape("/a/{x}.json"));
+        assertEquals("/search?page={}&q=shoes&safe", RouteTable.shape("/search?q=shoes&safe&page={p}"));
+        assertEquals("/", RouteTable.shape("/"));
+    }
+
+    @Test
+    public void routeTablesMatchTheMostSpecificRoute() {
+        RouteTable<String> routes = new RouteTable<String>();
+        routes.add("GET", "/users/{id}", "user");
+        routes.add("GET", "/users/me", "me");
+        routes.add("GET", "/users/{id}.json", "user json");
+        routes.add("GET", "/users/{id}/orders", "orders");
+        routes.add("GET", "/{resource}/me/orders", "anyone's orders");
+        routes.add("GET", "/search?q={q}", "search");
+        routes.add("GET", "/search?q=shoes", "shoes");
+        routes.add("GET", "/search?q=shoes&page={p}", "shoes by page");
+        routes.add("POST", "/users", "create");
+
+        assertEquals("user", routes.match("GET", "/users/42"));
+        assertEquals("user", routes.match("GET", "/users/VARIABLE"));
+        assertEquals("me", routes.match("GET", "/users/me"));
+        assertEquals("user json", routes.match("GET", "/users/42.json"));
+        assertEquals("orders", routes.match("GET", "/users/me/orders"));
+        assertEquals("anyone's orders", routes.match("GET", "/groups/me/orders"));
+        assertEquals("search", routes.match("GET", "/search?q=boots"));
+        assertEquals("shoes", routes.match("GET", "/search?q=shoes"));
+        assertEquals("shoes by page", routes.match("GET", "/search?page=2&q=shoes"));
+        assertEquals("create", routes.match("POST", "/users"));
+        assertEquals(null, routes.match("GET", "/users"));
+        assertEquals(null, routes.match("GET", "/users/"));
+        assertEquals(null, routes.match("GET", "/search"));
+        assertEquals(null, routes.match("GET", "/search?q=shoes&sort=price"));
+        assertEquals(null, routes.match("DELETE", "/users/42"));
+    }
+}
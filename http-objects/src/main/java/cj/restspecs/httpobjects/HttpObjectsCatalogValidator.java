@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.httpobjects;
+
+import cj.restspecs.core.CompiledRestSpec;
+import cj.restspecs.core.RestSpec;
+import cj.restspecs.core.RestSpecCatalog;
+import com.cj.restspecs.mockrunner.RestSpecServletValidator.BatchResult;
+import com.cj.restspecs.mockrunner.RestSpecServletValidator.SpecOutcome;
+import com.cj.restspecs.mockrunner.RestSpecServletValidator.ValidationResult;
+import com.cj.restspecs.mockrunner.RestSpecServletValidator.Violation;
+import org.httpobjects.HttpObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Validates a whole catalog against a set of resources in one pass: each spec is sent to the
+ * resource whose pattern serves its path, and specs that no resource serves are reported.
+ * The resources must be safe to call from several threads at once.
+ */
+public class HttpObjectsCatalogValidator {
+
+    public static class CatalogResult extends BatchResult {
+        public final List<RestSpec> unhandled;
+
+        public CatalogResult(List<SpecOutcome> outcomes, List<RestSpec> unhandled, long nanos) {
+            super(outcomes, nanos);
+            this.unhandled = Collections.unmodifiableList(unhandled);
+        }
+    }
+
+    private final ResourceIndex index;
+    private final HttpObjectsDirectValidator validator;
+
+    public HttpObjectsCatalogValidator(HttpObject... resources) {
+        this(Arrays.asList(resources));
+    }
+
+    public HttpObjectsCatalogValidator(Collection<? extends HttpObject> resources) {
+        this(resources, new HttpObjectsDirectValidator());
+    }
+
+    public HttpObjectsCatalogValidator(Collection<? extends HttpObject> resources, HttpObjectsDirectValidator validator) {
+        this.index = new ResourceIndex(new ArrayList<HttpObject>(resources));
+        this.validator = validator;
+    }
+
+    /**
+     * The resource that would serve path, or null if none of them does.
+     */
+    public HttpObject resourceFor(String path) {
+        return index.resolve(path);
+    }
+
+    public CatalogResult validateAll(RestSpecCatalog catalog) {
+        return validateAll(catalog.specs(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Validates every spec concurrently on executor, returning the outcomes in the order of
+     * specs.
+     */
+    public CatalogResult validateAll(Collection<RestSpec> specs, ExecutorService executor) {
+        long start = System.nanoTime();
+        List<Callable<SpecOutcome>> tasks = new ArrayList<Callable<SpecOutcome>>(specs.size());
+        for (final RestSpec spec : specs) {
+            tasks.add(new Callable<SpecOutcome>() {
+                public SpecOutcome call() {
+                    return validate(spec);
+                }
+            });
+        }
+
+        List<SpecOutcome> outcomes = new ArrayList<SpecOutcome>(tasks.size());
+        List<RestSpec> unhandled = new ArrayList<RestSpec>();
+        try {
+            for (Future<SpecOutcome> future : executor.invokeAll(tasks)) {
+                SpecOutcome outcome = future.get();
+                outcomes.add(outcome);
+                if (outcome instanceof Unhandled) {
+                    unhandled.add(outcome.spec);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while validating specs", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return new CatalogResult(outcomes, unhandled, System.nanoTime() - start);
+    }
+
+    private SpecOutcome validate(RestSpec spec) {
+        long start = System.nanoTime();
+        try {
+            CompiledRestSpec compiled = spec.compile();
+            HttpObject resource = index.resolve(compiled.path());
+            if (resource == null) {
+                ValidationResult result = new ValidationResult(Collections.singletonList(
+                        new Violation("None of the " + index.size() + " resources serves " + compiled.method() + " " + compiled.path())));
+                return new Unhandled(spec, result, System.nanoTime() - start);
+            }
+            return new SpecOutcome(spec, validator.validate(compiled, resource), null, System.nanoTime() - start);
+        } catch (Exception e) {
+            return new SpecOutcome(spec, null, e, System.nanoTime() - start);
+        }
+    }
+
+    private static class Unhandled extends SpecOutcome {
+        Unhandled(RestSpec spec, ValidationResult result, long nanos) {
+            super(spec, result, null, nanos);
+        }
+    }
+}
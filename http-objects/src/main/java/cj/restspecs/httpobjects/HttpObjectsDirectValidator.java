@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.httpobjects;
+
+import cj.restspecs.core.CompiledRestSpec;
+import cj.restspecs.core.RestSpec;
+import cj.restspecs.core.model.Header;
+import com.cj.restspecs.mockrunner.RestSpecServletValidator;
+import com.cj.restspecs.mockrunner.RestSpecServletValidator.ValidationResult;
+import org.httpobjects.DSL;
+import org.httpobjects.HttpObject;
+import org.httpobjects.Query;
+import org.httpobjects.Representation;
+import org.httpobjects.Request;
+import org.httpobjects.Response;
+import org.httpobjects.header.GenericHeaderField;
+import org.httpobjects.header.HeaderField;
+import org.httpobjects.test.MockRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Validates specs against an HttpObject by handing it an org.httpobjects.Request and checking
+ * the Response it returns, with no servlet container or servlet mocks in between.
+ */
+public class HttpObjectsDirectValidator {
+    private final RestSpecServletValidator responseValidator;
+
+    public HttpObjectsDirectValidator() {
+        this(new RestSpecServletValidator());
+    }
+
+    public HttpObjectsDirectValidator(RestSpecServletValidator responseValidator) {
+        this.responseValidator = responseValidator;
+    }
+
+    public ValidationResult validate(RestSpec rs, HttpObject resource) {
+        return validate(rs.compile(), resource);
+    }
+
+    public ValidationResult validate(CompiledRestSpec spec, HttpObject resource) {
+        Response response = invoke(resource, spec.method(), requestFor(spec, resource));
+        return validateResponse(spec, response);
+    }
+
+    static Request requestFor(CompiledRestSpec spec, HttpObject resource) {
+        List<HeaderField> fields = new ArrayList<HeaderField>();
+        Header header = spec.requestHeader();
+        for (String name : header.fieldNames()) {
+            for (String value : header.fieldsNamed(name)) {
+                fields.add(new GenericHeaderField(name, value));
+            }
+        }
+
+        cj.restspecs.core.model.Representation body = spec.requestRepresentation();
+        Representation representation = body == null ? null : DSL.Bytes(body.contentType(), body.bytes());
+
+        return new MockRequest(resource, spec.path(), new Query(spec.queryString()), representation, fields.toArray(new HeaderField[fields.size()]));
+    }
+
+    /**
+     * Calls the handler for method; a handler that returns null has not implemented it, which
+     * the servlet adapter answers with 405.
+     */
+    static Response invoke(HttpObject resource, String method, Request request) {
+        Response response;
+        switch (method.toUpperCase()) {
+            case "GET": response = resource.get(request); break;
+            case "POST": response = resource.post(request); break;
+            case "PUT": response = resource.put(request); break;
+            case "DELETE": response = resource.delete(request); break;
+            case "HEAD": response = resource.head(request); break;
+            case "OPTIONS": response = resource.options(request); break;
+            case "TRACE": response = resource.trace(request); break;
+            case "PATCH": response = resource.patch(request); break;
+            default: throw new RuntimeException("Unsupported http method: " + method);
+        }
+        return response != null ? response : DSL.METHOD_NOT_ALLOWED();
+    }
+
+    ValidationResult validateResponse(CompiledRestSpec spec, Response response) {
+        Map<String, List<String>> header = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+        for (HeaderField field : response.header()) {
+            add(header, field.name(), field.value());
+        }
+
+        String body = "";
+        if (response.hasRepresentation()) {
+            Representation representation = response.representation();
+            if (representation.contentType() != null) {
+                add(header, "Content-Type", representation.contentType());
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            representation.write(out);
+            body = new String(out.toByteArray(), charsetOf(representation.contentType()));
+        }
+
+        return responseValidator.validateResponse(spec, response.code().value(), header, body);
+    }
+
+    /**
+     * The charset the content type names, or ISO-8859-1, the servlet default, when it names none
+     * that this JVM supports.
+     */
+    static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            for (String parameter : contentType.split(";")) {
+                String[] nameAndValue = parameter.split("=", 2);
+                if (nameAndValue.length == 2 && nameAndValue[0].trim().equalsIgnoreCase("charset")) {
+                    String name = nameAndValue[1].trim().replace("\"", "");
+                    try {
+                        return Charset.forName(name);
+                    } catch (IllegalArgumentException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        return StandardCharsets.ISO_8859_1;
+    }
+
+    private static void add(Map<String, List<String>> header, String name, String value) {
+        List<String> values = header.get(name);
+        if (values == null) {
+            values = new ArrayList<String>();
+            header.put(name, values);
+        }
+        values.add(value);
+    }
+}
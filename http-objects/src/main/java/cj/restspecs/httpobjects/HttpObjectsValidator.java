@@ -71,6 +71,8 @@ public class HttpObjectsValidator extends HttpServlet {
         new ServletFilter(resource).doFilter(req, resp, dummyFilterChain);
     }
 
+    private static final HttpObjectsDirectValidator DIRECT = new HttpObjectsDirectValidator();
+
     public static ValidationResult applySpecificationToResource(RestSpec spec, HttpObject resource) {
         ValidationResult validationResult;
         try {
@@ -80,4 +82,16 @@ public class HttpObjectsValidator extends HttpServlet {
             throw new AssertionError(exception);
         }
     }
+
+    /**
+     * Calls the resource's handler directly with an httpobjects request built from the spec,
+     * rather than going through the servlet filter as {@link #applySpecificationToResource} does.
+     */
+    public static ValidationResult applySpecificationDirectly(RestSpec spec, HttpObject resource) {
+        try {
+            return DIRECT.validate(spec, resource);
+        } catch (Exception exception) {
+            throw new AssertionError(exception);
+        }
+    }
 }
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.httpobjects;
+
+import org.httpobjects.HttpObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the resource that serves a path.  Patterns made of literal and {param} segments are
+ * compiled into a segment trie; anything fancier is tried one by one.  As with httpobjects'
+ * own servers, the first resource whose pattern matches wins.
+ */
+final class ResourceIndex {
+    private static final class Node {
+        final Map<String, Node> literals = new HashMap<String, Node>();
+        Node param;
+        final List<Integer> resources = new ArrayList<Integer>();
+    }
+
+    private final List<HttpObject> resources;
+    private final Node root = new Node();
+    private final List<Integer> unindexed = new ArrayList<Integer>();
+
+    ResourceIndex(List<HttpObject> resources) {
+        this.resources = new ArrayList<HttpObject>(resources);
+        for (int x = 0; x < this.resources.size(); x++) {
+            String pattern = this.resources.get(x).pattern().raw();
+            if (isIndexable(pattern)) {
+                Node node = root;
+                for (String segment : segments(pattern)) {
+                    node = isParam(segment) ? paramOf(node) : literalOf(node, segment);
+                }
+                node.resources.add(x);
+            } else {
+                unindexed.add(x);
+            }
+        }
+    }
+
+    int size() {
+        return resources.size();
+    }
+
+    HttpObject resolve(String path) {
+        int best = walk(root, segments(path), 0, path, Integer.MAX_VALUE);
+        for (int x : unindexed) {
+            if (x < best && resources.get(x).pattern().matches(path)) {
+                best = x;
+            }
+        }
+        return best == Integer.MAX_VALUE ? null : resources.get(best);
+    }
+
+    private int walk(Node node, String[] segments, int depth, String path, int best) {
+        if (depth == segments.length) {
+            for (int x : node.resources) {
+                if (x < best && resources.get(x).pattern().matches(path)) {
+                    best = x;
+                }
+            }
+            return best;
+        }
+        Node literal = node.literals.get(segments[depth]);
+        if (literal != null) {
+            best = walk(literal, segments, depth + 1, path, best);
+        }
+        if (node.param != null) {
+            best = walk(node.param, segments, depth + 1, path, best);
+        }
+        return best;
+    }
+
+    private static Node literalOf(Node node, String segment) {
+        Node child = node.literals.get(segment);
+        if (child == null) {
+            child = new Node();
+            node.literals.put(segment, child);
+        }
+        return child;
+    }
+
+    private static Node paramOf(Node node) {
+        if (node.param == null) {
+            node.param = new Node();
+        }
+        return node.param;
+    }
+
+    private static boolean isIndexable(String pattern) {
+        if (pattern.contains("*")) {
+            return false;
+        }
+        for (String segment : segments(pattern)) {
+            if ((segment.contains("{") || segment.contains("}")) && !isParam(segment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isParam(String segment) {
+        return segment.length() > 2 && segment.startsWith("{") && segment.endsWith("}") && segment.indexOf('{', 1) == -1;
+    }
+
+    private static String[] segments(String path) {
+        List<String> segments = new ArrayList<String>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments.toArray(new String[segments.size()]);
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package cj.restspecs.httpobjects;
+
+import cj.restspecs.core.RestSpecCatalog;
+import cj.restspecs.core.io.FilesystemLoader;
+import org.apache.commons.io.FileUtils;
+import org.httpobjects.HttpObject;
+import org.httpobjects.Request;
+import org.httpobjects.Response;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class HttpObjectsCatalogValidatorTest {
+
+    private static HttpObject echo(String pattern) {
+        return new HttpObject(pattern) {
+            @Override
+            public Response get(Request req) {
+                return OK(Text(pattern().raw()));
+            }
+        };
+    }
+
+    @Test
+    public void resolvesPathsToTheFirstMatchingResource() {
+        HttpObject users = echo("/users");
+        HttpObject user = echo("/users/{id}");
+        HttpObject me = echo("/users/me");
+        HttpObject orders = echo("/users/{id}/orders/{order}");
+
+        HttpObjectsCatalogValidator validator = new HttpObjectsCatalogValidator(users, user, me, orders);
+
+        assertThat(validator.resourceFor("/users"), sameInstance(users));
+        assertThat(validator.resourceFor("/users/42"), sameInstance(user));
+        assertThat(validator.resourceFor("/users/me"), sameInstance(user));
+        assertThat(validator.resourceFor("/users/42/orders/7"), sameInstance(orders));
+        assertThat(validator.resourceFor("/users/42/orders"), nullValue());
+        assertThat(validator.resourceFor("/accounts"), nullValue());
+    }
+
+    @Test
+    public void validatesACatalogAgainstManyResources() throws Exception {
+        File root = File.createTempFile("catalog", ".dir");
+        FileUtils.forceDelete(root);
+        try {
+            String[][] specs = {
+                    {"users", "/users", "/users"},
+                    {"user", "/users/42", "/users/{id}"},
+                    {"order", "/users/42/orders/7", "/users/{id}/orders/{order}"},
+                    {"stale", "/users/43", "/users/{name}"},
+                    {"accounts", "/accounts?page=2", "/accounts"}};
+            StringBuilder catalog = new StringBuilder();
+            for (String[] spec : specs) {
+                FileUtils.write(new File(root, spec[0] + ".spec.json"), "{ \"name\": \"" + spec[0] + "\", \"url\": \"" + spec[1] + "\", \"request\": { \"method\": \"GET\" }, " +
+                        "\"response\": { \"statusCode\": 200, \"header\": { \"Content-Type\": \"text/plain\" }, \"representation\": \"" + spec[2] + "\" } }");
+                catalog.append("/").append(spec[0]).append(".spec.json\n");
+            }
+            FileUtils.write(new File(root, "restspecs.rs"), catalog.toString());
+
+            HttpObjectsCatalogValidator.CatalogResult result = new HttpObjectsCatalogValidator(echo("/users"), echo("/users/{id}"), echo("/users/{id}/orders/{order}"))
+                    .validateAll(RestSpecCatalog.read("/restspecs.rs", new FilesystemLoader(root)));
+
+            assertThat(result.outcomes.size(), is(5));
+            assertThat(result.failures().size(), is(2));
+            assertThat(result.failures().get(0).spec.name(), is("stale"));
+            assertThat(result.failures().get(0).description(), equalTo("The response representation should have been /users/{name} but was /users/{id}\n"));
+            assertThat(result.unhandled.size(), is(1));
+            assertThat(result.unhandled.get(0).name(), is("accounts"));
+            assertThat(result.failures().get(1).description(), equalTo("None of the 3 resources serves GET /accounts\n"));
+        } finally {
+            FileUtils.deleteDirectory(root);
+        }
+    }
+}
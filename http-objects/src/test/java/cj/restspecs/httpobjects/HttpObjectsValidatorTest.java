@@ -39,14 +39,20 @@ package cj.restspecs.httpobjects;
 
 import cj.restspecs.core.RestSpec;
 import cj.restspecs.core.io.ClasspathLoader;
+import cj.restspecs.core.io.StringLoader;
 import com.cj.restspecs.mockrunner.RestSpecServletValidator;
 import org.httpobjects.HttpObject;
+import org.httpobjects.Representation;
 import org.httpobjects.Request;
 import org.httpobjects.Response;
+import org.httpobjects.header.GenericHeaderField;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
@@ -70,4 +76,76 @@ public class HttpObjectsValidatorTest {
         //Then
         assertThat(result.description(), result.matches(), is(true));
     }
+
+    @Test
+    public void passesPathQueryHeadersAndBodyStraightToTheHandler() throws IOException {
+        //Given
+        HttpObject httpObject = new HttpObject("/users/{id}") {
+            @Override
+            public Response put(Request req) {
+                String body = new String(HttpObjectsValidatorTest.bytesOf(req.representation()));
+                return OK(Text(req.path().valueFor("id") + " " + req.query().valueFor("verbose") + " " + req.header().field("X-Trace").value() + " " + body),
+                        new GenericHeaderField("X-Served-By", "direct"));
+            }
+        };
+        String spec = "{ \"url\": \"/users/42?verbose=yes\", \"request\": { \"method\": \"PUT\", \"header\": { \"X-Trace\": \"abc\" }, \"representation\": \"hello\" }, " +
+                "\"response\": { \"statusCode\": 200, \"header\": { \"x-served-by\": \"direct\", \"Content-Type\": \"text/plain\" }, \"representation\": \"42 yes abc hello\" } }";
+
+        //When
+        RestSpecServletValidator.ValidationResult result = HttpObjectsValidator.applySpecificationDirectly(new RestSpec("spec", new StringLoader(spec)), httpObject);
+
+        //Then
+        assertThat(result.description(), result.matches(), is(true));
+    }
+
+    @Test
+    public void unimplementedMethodsAreNotAllowed() throws IOException {
+        //Given
+        HttpObject httpObject = new HttpObject("/sample") {
+            @Override
+            public Response get(Request req) {
+                return OK(Json("[\"awesomeness\"]"));
+            }
+        };
+        String spec = "{ \"url\": \"/sample\", \"request\": { \"method\": \"DELETE\" }, \"response\": { \"statusCode\": 204 } }";
+
+        //When
+        RestSpecServletValidator.ValidationResult result = HttpObjectsValidator.applySpecificationDirectly(new RestSpec("spec", new StringLoader(spec)), httpObject);
+
+        //Then
+        assertThat(result.description(), equalTo("Status code should have been 204 but was 405\n"));
+    }
+
+    @Test
+    public void decodesDirectResponsesWithTheirContentTypesCharset() throws IOException {
+        //Given
+        HttpObject httpObject = new HttpObject("/sample") {
+            @Override
+            public Response get(Request req) {
+                return OK(Bytes("text/plain; charset=UTF-16", "caf\u00e9".getBytes(StandardCharsets.UTF_16)));
+            }
+        };
+        String spec = "{ \"url\": \"/sample\", \"request\": { \"method\": \"GET\" }, " +
+                "\"response\": { \"statusCode\": 200, \"header\": { \"Content-Type\": \"text/plain; charset=UTF-16\" }, \"representation\": \"caf\\u00e9\" } }";
+
+        //When
+        RestSpecServletValidator.ValidationResult result = HttpObjectsValidator.applySpecificationDirectly(new RestSpec("spec", new StringLoader(spec)), httpObject);
+
+        //Then
+        assertThat(result.description(), result.matches(), is(true));
+    }
+
+    @Test
+    public void directResponsesWithoutACharsetAreDecodedAsLatin1() {
+        assertThat(HttpObjectsDirectValidator.charsetOf("text/plain"), equalTo(StandardCharsets.ISO_8859_1));
+        assertThat(HttpObjectsDirectValidator.charsetOf("text/plain; charset=\"utf-8\""), equalTo(StandardCharsets.UTF_8));
+        assertThat(HttpObjectsDirectValidator.charsetOf("text/plain; charset=no-such-charset"), equalTo(StandardCharsets.ISO_8859_1));
+        assertThat(HttpObjectsDirectValidator.charsetOf(null), equalTo(StandardCharsets.ISO_8859_1));
+    }
+
+    private static byte[] bytesOf(Representation representation) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        representation.write(out);
+        return out.toByteArray();
+    }
 }
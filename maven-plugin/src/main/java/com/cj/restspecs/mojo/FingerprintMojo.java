@@ -41,7 +41,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -142,27 +142,12 @@ public class FingerprintMojo extends AbstractRestSpecMojo {
     }
     
     private void updateDigest(String name, Representation r, MessageDigest digest){
-        try {
-            if(r!=null){
-                String md5 = DigestUtils.md5Hex(r.data());
-                getLog().info("                 [" + md5 + "] " + name);
-                updateDigest(r.data(), digest);
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        if(r!=null){
+            final ByteBuffer data = r.byteBuffer();
+            final MessageDigest md5 = DigestUtils.getMd5Digest();
+            md5.update(data.duplicate());
+            getLog().info("                 [" + Hex.encodeHexString(md5.digest()) + "] " + name);
+            digest.update(data.duplicate());
         }
     }
-
-    private void updateDigest(InputStream data, MessageDigest digest) {
-        try {
-            final byte[] buffer = new byte[1024 * 100];
-            for(int n = data.read(buffer);n!=-1;n = data.read(buffer)){
-                digest.update(buffer, 0, n);
-            }
-            data.close();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-        
-    }
 }
\ No newline at end of file
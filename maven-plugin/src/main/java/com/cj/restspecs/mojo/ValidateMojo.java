@@ -38,16 +38,15 @@
 package com.cj.restspecs.mojo;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
 import cj.restspecs.core.RestSpecValidator;
+import cj.restspecs.core.ValidationReport;
+import cj.restspecs.core.io.FilesystemLoader;
 import cj.restspecs.core.io.Loader;
 
 /**
@@ -55,6 +54,36 @@ import cj.restspecs.core.io.Loader;
  * @phase compile
  */
 public class ValidateMojo extends AbstractRestSpecMojo {
+
+    /**
+     * Number of specs to validate concurrently; 0 uses the common fork-join pool.
+     *
+     * @parameter property="restspecs.threads" default-value="0"
+     */
+    protected int threads;
+
+    /**
+     * When set, each source directory keeps a validation state file here and only specs
+     * that changed since the previous run are parsed and checked again.
+     *
+     * @parameter property="restspecs.stateDirectory"
+     */
+    protected File stateDirectory;
+
+    /**
+     * When set, a JSON report and a JUnit XML report with per-spec timings and every error
+     * are written here for each source directory.
+     *
+     * @parameter property="restspecs.reportDirectory"
+     */
+    protected File reportDirectory;
+
+    /**
+     * Fail instead of warning when two specs declare the same method and url shape.
+     *
+     * @parameter property="restspecs.failOnRouteConflicts" default-value="false"
+     */
+    protected boolean failOnRouteConflicts;
     
     public ValidateMojo() {}
 
@@ -67,27 +96,56 @@ public class ValidateMojo extends AbstractRestSpecMojo {
 
     public void execute() throws MojoExecutionException, MojoFailureException {
 	
-	for(final File targetPath : findSourceDirectories()){
-	    
-	    final Loader loader = new Loader() {
-	        
-	        public InputStream load(String name) {
-	            try {
-	        	File theFile = new File(targetPath, name);
-			return new FileInputStream(theFile);
-		    } catch (Exception e) {
-			throw new RuntimeException(e);
-		    }
-	        }
-	    };
-	    
-	    try {
-		new RestSpecValidator(targetPath, loader, System.out).validate(excludes);
-	    } catch (Exception e) {
-		throw new MojoFailureException(e.getMessage(), e);
+	final ForkJoinPool pool = threads > 0 ? new ForkJoinPool(threads) : ForkJoinPool.commonPool();
+	try {
+	    for(final File targetPath : findSourceDirectories()){
+		
+		final Loader loader = new FilesystemLoader(targetPath);
+		
+		final ValidationReport report = new ValidationReport();
+		
+		try {
+		    new RestSpecValidator(targetPath, loader, System.out, pool).withRouteConflictsAsErrors(failOnRouteConflicts).validate(excludes, stateFileFor(targetPath), report);
+		} catch (Exception e) {
+		    throw new MojoFailureException(e.getMessage(), e);
+		} finally {
+		    writeReports(targetPath, report);
+		}
 	    }
+	} finally {
+	    if (pool != ForkJoinPool.commonPool()) {
+		pool.shutdown();
+	    }
+	}
+
+    }
+
+    private File stateFileFor(File targetPath) {
+	if (stateDirectory == null) {
+	    return null;
 	}
+	return new File(stateDirectory, "validate-" + fileNameFor(targetPath) + ".json");
+    }
+
+    /**
+     * Reports that can't be written are logged rather than thrown, so they never hide the
+     * validation failure they were meant to describe.
+     */
+    private void writeReports(File targetPath, ValidationReport report) {
+	if (reportDirectory == null) {
+	    return;
+	}
+	try {
+	    report.writeJson(new File(reportDirectory, "restspecs-validate-" + fileNameFor(targetPath) + ".json"));
+	    report.writeJUnitXml(new File(reportDirectory, "TEST-restspecs-validate-" + fileNameFor(targetPath) + ".xml"));
+	} catch (RuntimeException e) {
+	    getLog().warn(e.getMessage(), e);
+	}
+    }
 
+    private String fileNameFor(File targetPath) {
+	String relative = basedir.toURI().relativize(targetPath.toURI()).getPath();
+	return relative.replaceAll("[^A-Za-z0-9.-]+", "_");
     }
 
 }
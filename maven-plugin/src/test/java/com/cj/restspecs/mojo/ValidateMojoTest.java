@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.cj.restspecs.mojo;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.After;
+import org.junit.Test;
+
+public class ValidateMojoTest {
+
+    @After
+    public void removeTheFiles() throws Exception {
+        for(FilesystemScenario next : FilesystemScenario.instances){
+            next.delete();
+        }
+    }
+
+    @Test
+    public void aReportThatCantBeWrittenDoesNotHideTheValidationFailure() throws Exception {
+        FilesystemScenario mavenProject = new FilesystemScenario();
+        File notADirectory = new File(mavenProject.targetDir, "reports");
+        FileUtils.write(notADirectory, "in the way");
+
+        ValidateMojo mojo = new ValidateMojo(mavenProject.root, Arrays.asList("src/main/resources"), Collections.<String>emptyList());
+        mojo.reportDirectory = new File(notADirectory, "restspecs");
+        try {
+            mojo.execute();
+            fail("the specs aren't valid JSON");
+        } catch (MojoFailureException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("spec.json"));
+            assertFalse(e.getMessage(), e.getMessage().contains("Unable to write validation report"));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.cj.restspecs.mockrunner;
+
+import cj.restspecs.core.model.Representation;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parsed expected JSON bodies, keyed by the bytes they were parsed from.  Replaying a spec
+ * reuses its tree; when a spec or its referenced file changes, the new contents simply miss
+ * and the stale tree ages out.  Bounded by the total size of the cached bodies.
+ */
+final class ExpectedRepresentations {
+    static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    static final ExpectedRepresentations SHARED = new ExpectedRepresentations(DEFAULT_MAX_BYTES);
+
+    private final long maxBytes;
+    private final Map<ByteBuffer, JsonNode> trees = new LinkedHashMap<ByteBuffer, JsonNode>(16, 0.75f, true);
+    private long bytes;
+
+    ExpectedRepresentations(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    JsonNode jsonTree(Representation representation) {
+        ByteBuffer key = representation.byteBuffer();
+        if (key == null) {
+            return JsonComparison.parse(representation.asText());
+        }
+
+        synchronized (this) {
+            JsonNode cached = trees.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        JsonNode tree = JsonComparison.parse(representation.asText());
+        if (key.remaining() <= maxBytes) {
+            if (key.isDirect()) {
+                // a mapped file changes underneath its buffer; keep the contents that were parsed
+                key = ByteBuffer.allocate(key.remaining()).put(key.duplicate()).asReadOnlyBuffer();
+                key.rewind();
+            }
+            synchronized (this) {
+                if (trees.put(key, tree) == null) {
+                    bytes += key.remaining();
+                }
+                Iterator<ByteBuffer> eldestFirst = trees.keySet().iterator();
+                while (bytes > maxBytes && eldestFirst.hasNext()) {
+                    bytes -= eldestFirst.next().remaining();
+                    eldestFirst.remove();
+                }
+            }
+        }
+        return tree;
+    }
+
+    synchronized int size() {
+        return trees.size();
+    }
+
+    synchronized void clear() {
+        trees.clear();
+        bytes = 0;
+    }
+}
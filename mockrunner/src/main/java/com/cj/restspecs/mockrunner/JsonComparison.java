@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.cj.restspecs.mockrunner;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JSON documents structurally, ignoring the order of object fields, and stops at
+ * the first difference.  Paths are only built once a difference is found, and it is described
+ * by that path, e.g. '$.items[3].price', and by short renderings of both values.
+ */
+final class JsonComparison {
+    private static final ObjectReader READER = new ObjectMapper().reader();
+    private static final int MAX_VALUE_LENGTH = 80;
+
+    private JsonComparison() {
+    }
+
+    static JsonNode parse(String json) {
+        try {
+            JsonNode node = READER.readTree(json);
+            if (node == null || node.isMissingNode()) {
+                throw new IllegalArgumentException("No content");
+            }
+            return node;
+        } catch (Exception error) {
+            throw new RuntimeException(String.format("Failed to normalize JSON: '%s'", json), error);
+        }
+    }
+
+    /**
+     * Describes the first difference between the two documents, or returns null when they are
+     * equivalent.
+     */
+    static String firstDifference(JsonNode expected, JsonNode actual) {
+        Difference difference = compare(expected, actual);
+        return difference == null ? null : difference.describe();
+    }
+
+    private static final class Difference {
+        private final List<String> reversedPath = new ArrayList<String>();
+        private final String description;
+
+        Difference(String description) {
+            this.description = description;
+        }
+
+        Difference under(String segment) {
+            reversedPath.add(segment);
+            return this;
+        }
+
+        String describe() {
+            StringBuilder path = new StringBuilder("$");
+            for (int x = reversedPath.size() - 1; x >= 0; x--) {
+                path.append(reversedPath.get(x));
+            }
+            return path + ": " + description;
+        }
+    }
+
+    private static Difference compare(JsonNode expected, JsonNode actual) {
+        if (expected.getNodeType() != actual.getNodeType()) {
+            return valuesDiffer(expected, actual);
+        }
+
+        if (expected.isObject()) {
+            if (expected.size() == actual.size()) {
+                Iterator<Map.Entry<String, JsonNode>> fields = expected.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    JsonNode actualValue = actual.get(field.getKey());
+                    if (actualValue == null) {
+                        return new Difference("expected a field named '" + field.getKey() + "' but there was none");
+                    }
+                    Difference difference = compare(field.getValue(), actualValue);
+                    if (difference != null) {
+                        return difference.under(fieldSegment(field.getKey()));
+                    }
+                }
+                return null;
+            }
+            Iterator<String> expectedNames = expected.fieldNames();
+            while (expectedNames.hasNext()) {
+                String name = expectedNames.next();
+                if (!actual.has(name)) {
+                    return new Difference("expected a field named '" + name + "' but there was none");
+                }
+            }
+            Iterator<String> actualNames = actual.fieldNames();
+            while (actualNames.hasNext()) {
+                String name = actualNames.next();
+                if (!expected.has(name)) {
+                    return new Difference("did not expect a field named '" + name + "'");
+                }
+            }
+            return null;
+        }
+
+        if (expected.isArray()) {
+            if (expected.size() != actual.size()) {
+                return new Difference("expected " + expected.size() + " elements but there were " + actual.size());
+            }
+            for (int x = 0; x < expected.size(); x++) {
+                Difference difference = compare(expected.get(x), actual.get(x));
+                if (difference != null) {
+                    return difference.under("[" + x + "]");
+                }
+            }
+            return null;
+        }
+
+        return expected.equals(actual) ? null : valuesDiffer(expected, actual);
+    }
+
+    private static Difference valuesDiffer(JsonNode expected, JsonNode actual) {
+        return new Difference("expected " + abbreviate(expected) + " but was " + abbreviate(actual));
+    }
+
+    private static String fieldSegment(String name) {
+        for (int x = 0; x < name.length(); x++) {
+            char c = name.charAt(x);
+            if (!(Character.isLetterOrDigit(c) || c == '_' || c == '$') || (x == 0 && Character.isDigit(c))) {
+                return "['" + name.replace("'", "\\'") + "']";
+            }
+        }
+        return name.isEmpty() ? "['']" : "." + name;
+    }
+
+    private static String abbreviate(JsonNode node) {
+        String text = node.toString();
+        return text.length() <= MAX_VALUE_LENGTH ? text : text.substring(0, MAX_VALUE_LENGTH) + "...";
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.cj.restspecs.mockrunner;
+
+import cj.restspecs.core.CompiledRestSpec;
+import cj.restspecs.core.RestSpec;
+import cj.restspecs.core.model.Header;
+import cj.restspecs.core.model.Representation;
+import com.mockrunner.mock.web.MockHttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything needed to build the mock request for a spec, worked out once so that the same
+ * request can be issued repeatedly without going back to the spec.
+ */
+final class RequestTemplate {
+    private final String[] headerNames;
+    private final String[] headerValues;
+    private final String body;
+    private final String path;
+    private final String queryString;
+    private final String[] parameterNames;
+    private final String[][] parameterValues;
+    private final String method;
+
+    RequestTemplate(CompiledRestSpec restSpec) {
+        List<String> names = new ArrayList<String>();
+        List<String> values = new ArrayList<String>();
+        Header header = restSpec.requestHeader();
+        for(String name: header.fieldNames()){
+            for(String value : header.fieldsNamed(name)){
+                names.add(name);
+                values.add(value);
+            }
+        }
+        this.headerNames = names.toArray(new String[names.size()]);
+        this.headerValues = values.toArray(new String[values.size()]);
+
+        Representation requestRepresentation = restSpec.requestRepresentation();
+        this.body = requestRepresentation != null ? requestRepresentation.asText() : "";
+
+        this.path = restSpec.path();
+        this.queryString = stripLeadingQuestionMark(restSpec.queryString());
+
+        RestSpec.QueryParameters queryParameters = restSpec.queryParameters();
+        this.parameterNames = queryParameters.names().toArray(new String[]{});
+        this.parameterValues = new String[parameterNames.length][];
+        for (int x = 0; x < parameterNames.length; x++) {
+            parameterValues[x] = queryParameters.values(parameterNames[x]).toArray(new String[]{});
+        }
+
+        this.method = restSpec.method();
+    }
+
+    private static String stripLeadingQuestionMark(String query){
+        if(query!=null && query.startsWith("?")){
+            return query.substring(1);
+        }else{
+            return query;
+        }
+    }
+
+    MockHttpServletRequest newRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        for (int x = 0; x < headerNames.length; x++) {
+            request.setHeader(headerNames[x], headerValues[x]);
+        }
+
+        request.setBodyContent(body);
+
+        request.setRequestURI(path);
+        request.setPathInfo(path);
+        request.setQueryString(queryString);
+
+        for (int x = 0; x < parameterNames.length; x++) {
+            request.setupAddParameter(parameterNames[x], parameterValues[x]);
+        }
+
+        request.setMethod(method);
+
+        return request;
+    }
+}
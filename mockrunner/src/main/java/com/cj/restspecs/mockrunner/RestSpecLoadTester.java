@@ -0,0 +1,262 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.cj.restspecs.mockrunner;
+
+import cj.restspecs.core.CompiledRestSpec;
+import cj.restspecs.core.RestSpec;
+import com.mockrunner.mock.web.MockHttpServletRequest;
+import com.mockrunner.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a spec's request against a servlet from several threads, for a number of iterations
+ * or for a fixed time, and measures how long the servlet takes.  Every Nth response is also
+ * validated against the spec.  The servlet must be safe to call from several threads at once.
+ */
+public class RestSpecLoadTester {
+    private static final int MAX_RECORDED_FAILURES = 10;
+
+    public static class LoadResult {
+        public final long requests;
+        public final long validated;
+        public final long violations;
+        public final long errors;
+        public final List<String> failures;
+        public final long nanos;
+        private final LatencyHistogram latencies;
+
+        LoadResult(long requests, long validated, long violations, long errors, List<String> failures, long nanos, LatencyHistogram latencies) {
+            this.requests = requests;
+            this.validated = validated;
+            this.violations = violations;
+            this.errors = errors;
+            this.failures = Collections.unmodifiableList(failures);
+            this.nanos = nanos;
+            this.latencies = latencies;
+        }
+
+        public double throughput() {
+            return nanos == 0 ? 0 : requests / (nanos / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        public long percentile(double percent) {
+            return latencies.percentile(percent);
+        }
+
+        public long p50() {
+            return latencies.percentile(50);
+        }
+
+        public long p90() {
+            return latencies.percentile(90);
+        }
+
+        public long p99() {
+            return latencies.percentile(99);
+        }
+
+        public long max() {
+            return latencies.max();
+        }
+
+        public LatencyHistogram latencies() {
+            return latencies;
+        }
+
+        public String summary() {
+            return String.format(Locale.ENGLISH, "%d requests in %.1f ms (%.1f/s), p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms; %d of %d validated responses had violations, %d errors",
+                    requests, millis(nanos), throughput(), millis(p50()), millis(p90()), millis(p99()), millis(max()), violations, validated, errors);
+        }
+
+        public void assertNoViolations() {
+            if (violations > 0 || errors > 0) {
+                StringBuilder text = new StringBuilder(summary()).append("\n");
+                for (String failure : failures) {
+                    text.append(failure).append("\n");
+                }
+                throw new RuntimeException(text.toString());
+            }
+        }
+
+        private static double millis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+
+    private final RestSpecServletValidator validator;
+    private final int threads;
+    private final long iterations;
+    private final long durationNanos;
+    private final int validateEvery;
+
+    public RestSpecLoadTester(int threads, long iterations) {
+        this(new RestSpecServletValidator(), threads, iterations, Long.MAX_VALUE, 100);
+    }
+
+    private RestSpecLoadTester(RestSpecServletValidator validator, int threads, long iterations, long durationNanos, int validateEvery) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        if (iterations < 0) {
+            throw new IllegalArgumentException("iterations must not be negative");
+        }
+        if (validateEvery < 0) {
+            throw new IllegalArgumentException("validateEvery must not be negative");
+        }
+        this.validator = validator;
+        this.threads = threads;
+        this.iterations = iterations;
+        this.durationNanos = durationNanos;
+        this.validateEvery = validateEvery;
+    }
+
+    public static RestSpecLoadTester forDuration(int threads, long duration, TimeUnit unit) {
+        return new RestSpecLoadTester(new RestSpecServletValidator(), threads, Long.MAX_VALUE, unit.toNanos(duration), 100);
+    }
+
+    /**
+     * Validates every nth response (the first is always validated); 0 validates none.
+     */
+    public RestSpecLoadTester validatingEvery(int n) {
+        return new RestSpecLoadTester(validator, threads, iterations, durationNanos, n);
+    }
+
+    public LoadResult run(RestSpec rs, final HttpServlet testSubject) throws InterruptedException {
+        final CompiledRestSpec spec = rs.compile();
+        final RequestTemplate template = new RequestTemplate(spec);
+        final AtomicLong claimed = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final Worker[] workers = new Worker[threads];
+        Thread[] running = new Thread[threads];
+
+        for (int x = 0; x < threads; x++) {
+            final Worker worker = new Worker();
+            workers[x] = worker;
+            running[x] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    worker.run(spec, template, testSubject, claimed);
+                }
+            }, "restspec-load-" + x);
+            running[x].start();
+        }
+
+        long begin = System.nanoTime();
+        long deadline = durationNanos == Long.MAX_VALUE ? Long.MAX_VALUE : begin + durationNanos;
+        for (Worker worker : workers) {
+            worker.deadline = deadline;
+        }
+        start.countDown();
+        for (Thread thread : running) {
+            thread.join();
+        }
+        long nanos = System.nanoTime() - begin;
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        long validated = 0;
+        long violations = 0;
+        long errors = 0;
+        List<String> failures = new ArrayList<String>();
+        for (Worker worker : workers) {
+            latencies.add(worker.latencies);
+            validated += worker.validated;
+            violations += worker.violations;
+            errors += worker.errors;
+            for (String failure : worker.failures) {
+                if (failures.size() < MAX_RECORDED_FAILURES) {
+                    failures.add(failure);
+                }
+            }
+        }
+        return new LoadResult(latencies.count(), validated, violations, errors, failures, nanos, latencies);
+    }
+
+    private class Worker {
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final List<String> failures = new ArrayList<String>();
+        long deadline;
+        long validated;
+        long violations;
+        long errors;
+
+        void run(CompiledRestSpec spec, RequestTemplate template, HttpServlet testSubject, AtomicLong claimed) {
+            long n;
+            while ((n = claimed.getAndIncrement()) < iterations && System.nanoTime() < deadline) {
+                MockHttpServletRequest request = template.newRequest();
+                MockHttpServletResponse response = new MockHttpServletResponse();
+                long requestStart = System.nanoTime();
+                try {
+                    testSubject.service(request, response);
+                } catch (Exception e) {
+                    latencies.record(System.nanoTime() - requestStart);
+                    errors++;
+                    record("Request " + n + " threw " + e);
+                    continue;
+                }
+                latencies.record(System.nanoTime() - requestStart);
+
+                if (validateEvery > 0 && n % validateEvery == 0) {
+                    validated++;
+                    RestSpecServletValidator.ValidationResult result = validator.validateResponseAgainstRestSpec(spec, response);
+                    if (!result.matches()) {
+                        violations++;
+                        record("Response " + n + ": " + result.description());
+                    }
+                }
+            }
+        }
+
+        private void record(String failure) {
+            if (failures.size() < MAX_RECORDED_FAILURES) {
+                failures.add(failure);
+            }
+        }
+    }
+}
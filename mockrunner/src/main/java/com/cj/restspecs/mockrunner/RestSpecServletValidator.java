@@ -37,17 +37,26 @@
  */
 package com.cj.restspecs.mockrunner;
 
+import cj.restspecs.core.CompiledRestSpec;
 import cj.restspecs.core.RestSpec;
-import cj.restspecs.core.model.Representation;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import cj.restspecs.core.RestSpecCatalog;
+import cj.restspecs.core.model.Header;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.mockrunner.mock.web.MockHttpServletRequest;
 import com.mockrunner.mock.web.MockHttpServletResponse;
 
 import javax.servlet.http.HttpServlet;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class RestSpecServletValidator {
 
@@ -94,91 +103,185 @@ public class RestSpecServletValidator {
         }
     }
     
-    private String stripLeadingQuestionMark(String query){
-        if(query!=null && query.startsWith("?")){
-            return query.substring(1);
-        }else{
-            return query;
+    public static class SpecOutcome {
+        public final RestSpec spec;
+        public final ValidationResult result;
+        public final Exception error;
+        public final long nanos;
+
+        public SpecOutcome(RestSpec spec, ValidationResult result, Exception error, long nanos) {
+            this.spec = spec;
+            this.result = result;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        public boolean matches() {
+            return error == null && result.matches();
+        }
+
+        public String description() {
+            return error != null ? "Validation failed: " + error : result.description();
         }
     }
 
+    public static class BatchResult {
+        public final List<SpecOutcome> outcomes;
+        public final long nanos;
+
+        public BatchResult(List<SpecOutcome> outcomes, long nanos) {
+            this.outcomes = Collections.unmodifiableList(outcomes);
+            this.nanos = nanos;
+        }
+
+        public List<SpecOutcome> failures() {
+            List<SpecOutcome> failures = new ArrayList<SpecOutcome>();
+            for (SpecOutcome outcome : outcomes) {
+                if (!outcome.matches()) {
+                    failures.add(outcome);
+                }
+            }
+            return failures;
+        }
+
+        public boolean matches() {
+            return failures().isEmpty();
+        }
+
+        public void assertNoViolations() {
+            List<SpecOutcome> failures = failures();
+            if (!failures.isEmpty()) {
+                StringBuilder text = new StringBuilder(failures.size() + " of " + outcomes.size() + " specs failed\n");
+                for (SpecOutcome failure : failures) {
+                    text.append(failure.spec.name()).append(" (").append(failure.spec.path()).append("):\n");
+                    text.append(failure.description()).append("\n");
+                }
+                throw new RuntimeException(text.toString());
+            }
+        }
+    }
+
+    private final ExpectedRepresentations expectedRepresentations;
+
+    public RestSpecServletValidator() {
+        this(ExpectedRepresentations.SHARED);
+    }
+
+    RestSpecServletValidator(ExpectedRepresentations expectedRepresentations) {
+        this.expectedRepresentations = expectedRepresentations;
+    }
+
     public ValidationResult validate(RestSpec rs, HttpServlet testSubject) throws Exception {
 
         //given
-        MockHttpServletRequest req = buildRequestFromRestSpec(rs);
+        CompiledRestSpec spec = rs.compile();
+        MockHttpServletRequest req = new RequestTemplate(spec).newRequest();
         MockHttpServletResponse res = new MockHttpServletResponse();
 
         //when
         testSubject.service(req, res);
 
         //then
-        return validateResponseAgainstRestSpec(rs, res);
+        return validateResponseAgainstRestSpec(spec, res);
     }
 
-    private MockHttpServletRequest buildRequestFromRestSpec(RestSpec restSpec) {
-        MockHttpServletRequest request;
-        request = new MockHttpServletRequest();
+    /**
+     * Validates every spec in the catalog concurrently on the common fork-join pool.  The
+     * servlet must be safe to call from several threads at once.
+     */
+    public BatchResult validateAll(RestSpecCatalog catalog, HttpServlet testSubject) {
+        return validateAll(catalog.specs(), testSubject, ForkJoinPool.commonPool());
+    }
 
-        for(String name: restSpec.request().header().fieldNames()){
-            for(String value : restSpec.request().header().fieldsNamed(name)){
-                request.setHeader(name, value);
-            }
+    /**
+     * Validates every spec concurrently on executor, returning the outcomes in the order of
+     * specs.  The servlet must be safe to call from several threads at once.
+     */
+    public BatchResult validateAll(Collection<RestSpec> specs, final HttpServlet testSubject, ExecutorService executor) {
+        long start = System.nanoTime();
+        List<Callable<SpecOutcome>> tasks = new ArrayList<Callable<SpecOutcome>>(specs.size());
+        for (final RestSpec spec : specs) {
+            tasks.add(new Callable<SpecOutcome>() {
+                public SpecOutcome call() {
+                    long specStart = System.nanoTime();
+                    try {
+                        ValidationResult result = validate(spec, testSubject);
+                        return new SpecOutcome(spec, result, null, System.nanoTime() - specStart);
+                    } catch (Exception e) {
+                        return new SpecOutcome(spec, null, e, System.nanoTime() - specStart);
+                    }
+                }
+            });
         }
 
-        Representation requestRepresentation = restSpec.request().representation();
-        if (requestRepresentation != null) {
-            request.setBodyContent(requestRepresentation.asText());
-        } else {
-            request.setBodyContent("");
+        List<SpecOutcome> outcomes = new ArrayList<SpecOutcome>(tasks.size());
+        try {
+            for (Future<SpecOutcome> outcome : executor.invokeAll(tasks)) {
+                outcomes.add(outcome.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while validating specs", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
         }
+        return new BatchResult(outcomes, System.nanoTime() - start);
+    }
 
-        request.setRequestURI(restSpec.pathMinusQueryStringAndFragment());
-        request.setPathInfo(restSpec.pathMinusQueryStringAndFragment());
-        request.setQueryString(stripLeadingQuestionMark(restSpec.queryString()));
+    ValidationResult validateResponseAgainstRestSpec(CompiledRestSpec restSpec, MockHttpServletResponse response) {
+        int actualResponseCode = response.getStatusCode();
 
-        RestSpec.QueryParameters queryParameters = restSpec.queryParameters();
-        for (String name : queryParameters.names()) {
-            request.setupAddParameter(name, queryParameters.values(name).toArray(new String[]{}));
+        if (response.wasErrorSent()) {
+            actualResponseCode = response.getErrorCode();
         }
 
-        request.setMethod(restSpec.request().method());
+        Map<String, List<String>> header = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+        for (String fieldName : restSpec.responseHeader().fieldNames()) {
+            List<String> values = new ArrayList<String>();
+            List headerList = response.getHeaderList(fieldName);
+            if (headerList != null) {
+                for (Object value : headerList) {
+                    values.add(String.valueOf(value));
+                }
+            }
+            header.put(fieldName, values);
+        }
 
-        return request;
+        return validateResponse(restSpec, actualResponseCode, header, response.getOutputStreamContent());
     }
 
-    private ValidationResult validateResponseAgainstRestSpec(RestSpec restSpec, MockHttpServletResponse response) {
+    /**
+     * Validates a response that was produced without going through a servlet.  Header names
+     * are looked up in header as the spec spells them, so the map should ignore case.
+     */
+    public ValidationResult validateResponse(CompiledRestSpec restSpec, int actualResponseCode, Map<String, List<String>> header, String body) {
         List<Violation> violations;
         violations = new ArrayList<Violation>();
 
-        int expectedStatusCode = restSpec.response().statusCode();
-        int actualResponseCode = response.getStatusCode();
-
-        if (response.wasErrorSent()) {
-            actualResponseCode = response.getErrorCode();
-        }
+        int expectedStatusCode = restSpec.statusCode();
 
         if (expectedStatusCode != actualResponseCode) {
             violations.add(new Violation("Status code should have been " + expectedStatusCode + " but was " + actualResponseCode));
         }
 
-        violations.addAll(validateResponseHeaders(restSpec, response));
+        violations.addAll(validateResponseHeaders(restSpec, header));
 
-        if (restSpec.response().representation() != null) {
-            violations.addAll(validateResponseBody(restSpec, response));
+        if (restSpec.responseRepresentation() != null) {
+            violations.addAll(validateResponseBody(restSpec, body));
         }
 
         return new ValidationResult(violations);
     }
 
-    private List<Violation> validateResponseHeaders(RestSpec restSpec, MockHttpServletResponse response) {
+    private List<Violation> validateResponseHeaders(CompiledRestSpec restSpec, Map<String, List<String>> actualHeader) {
         List<Violation> violations;
         violations = new ArrayList<Violation>();
-        List<String> headerFieldNames = restSpec.response().header().fieldNames();
+        Header header = restSpec.responseHeader();
 
-        for (String fieldName : headerFieldNames) {
-            for (String fieldValue : restSpec.response().header().fieldsNamed(fieldName)) {
-                List headerList = response.getHeaderList(fieldName);
-                String realHeaderValue = response.getHeader(fieldName);
+        for (String fieldName : header.fieldNames()) {
+            for (String fieldValue : header.fieldsNamed(fieldName)) {
+                List<String> headerList = actualHeader.get(fieldName);
+                String realHeaderValue = headerList == null || headerList.isEmpty() ? null : headerList.get(0);
                 if (headerList == null || !headerList.contains(fieldValue)) {
                     violations.add(new Violation(String.format("Expected header '%s' set to '%s', but was '%s'", fieldName, fieldValue, realHeaderValue)));
                 }
@@ -188,91 +291,41 @@ public class RestSpecServletValidator {
         return violations;
     }
 
-    private List<Violation> validateResponseBody(RestSpec restSpec, MockHttpServletResponse response) {
+    private List<Violation> validateResponseBody(CompiledRestSpec restSpec, String body) {
         List<Violation> violations = new ArrayList<Violation>();
-        RepresentationsResult representationsResult = getRepresentations(restSpec, response);
-        if(representationsResult.hasViolations()) {
-            violations.addAll(representationsResult.violations());
-        } else {
-            boolean representationsAreEquivalent = representationsResult.expected().equals(representationsResult.actual());
-            if (!representationsAreEquivalent) {
-                violations.add(new Violation("The response representation should have been " + representationsResult.expected() + " but was " + representationsResult.actual()));
-            }
-        }
-        return violations;
-    }
-
-    private RepresentationsResult getRepresentations(RestSpec restSpec, MockHttpServletResponse response) {
-        List<Violation> violations = new ArrayList<Violation>();
-        String expected = null;
-        String actual = null;
         if (isJsonContent(restSpec)) {
+            JsonNode expected = null;
+            JsonNode actual = null;
             try {
-                expected = normalize(restSpec.response().representation().asText());
+                expected = expectedRepresentations.jsonTree(restSpec.responseRepresentation());
             } catch(RuntimeException ex){
                 violations.add(new Violation("expected: " + ex.getMessage()));
             }
 
             try {
-                actual = normalize(response.getOutputStreamContent());
+                actual = JsonComparison.parse(body);
             } catch(RuntimeException ex){
                 violations.add(new Violation("actual  : " + ex.getMessage()));
             }
+
+            if (violations.isEmpty()) {
+                String difference = JsonComparison.firstDifference(expected, actual);
+                if (difference != null) {
+                    violations.add(new Violation("The response representation differs from the spec at " + difference));
+                }
+            }
         } else {
-            expected = restSpec.response().representation().asText();
-            actual = response.getOutputStreamContent();
+            String expected = restSpec.responseRepresentation().asText();
+            if (!expected.equals(body)) {
+                violations.add(new Violation("The response representation should have been " + expected + " but was " + body));
+            }
         }
-        return new RepresentationsResult(expected, actual, violations);
+        return violations;
     }
 
-    private boolean isJsonContent(RestSpec restSpec) {
-        String contentType = restSpec.response().representation().contentType();
+    private boolean isJsonContent(CompiledRestSpec restSpec) {
+        String contentType = restSpec.responseRepresentation().contentType();
         boolean isJsonContent = contentType.contains("/json");
         return isJsonContent;
     }
-
-    private String normalize(String inputJson) {
-        try {
-            String outputJson;
-
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
-
-
-            Object mappedInput = mapper.readValue(inputJson, Object.class);
-
-            outputJson = mapper.writeValueAsString(mappedInput);
-            return outputJson;
-        } catch (Exception error) {
-            throw new RuntimeException(String.format("Failed to normalize JSON: '%s'", inputJson), error);
-        }
-    }
-
-    private static class RepresentationsResult {
-        private final String expected;
-        private final String actual;
-        private final List<Violation> violations;
-
-        public RepresentationsResult(String expected, String actual, List<Violation> violations) {
-            this.expected = expected;
-            this.actual = actual;
-            this.violations = violations;
-        }
-
-        public boolean hasViolations() {
-            return !violations.isEmpty();
-        }
-
-        public List<Violation> violations() {
-            return violations;
-        }
-
-        public String expected() {
-            return expected;
-        }
-
-        public String actual() {
-            return actual;
-        }
-    }
-}
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.cj.restspecs.mockrunner;
+
+import cj.restspecs.core.RestSpec;
+import cj.restspecs.core.io.StringLoader;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class RestSpecLoadTesterTest {
+    @Test
+    public void replaysTheRequestTheGivenNumberOfTimes() throws Exception {
+        String spec = "{ \"url\": \"/echo\", \"request\": { \"method\": \"POST\", \"representation\": \"ola\" }, \"response\": { \"statusCode\": 200, \"header\": { \"Content-Type\": \"text/plain\" }, \"representation\": \"ola\" } }";
+        RestSpec restSpec = new RestSpec("spec", new StringLoader(spec));
+        final AtomicInteger calls = new AtomicInteger();
+
+        RestSpecLoadTester.LoadResult result = new RestSpecLoadTester(4, 500).validatingEvery(1).run(restSpec, new HttpServlet() {
+            @Override
+            protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+                calls.incrementAndGet();
+                response.setContentType("text/plain");
+                response.getOutputStream().print(IOUtils.toString(request.getInputStream()));
+            }
+        });
+
+        result.assertNoViolations();
+        assertThat(calls.get(), is(500));
+        assertThat(result.requests, is(500L));
+        assertThat(result.validated, is(500L));
+        assertThat(result.p50() <= result.p99(), is(true));
+        assertThat(result.p99() <= result.max(), is(true));
+        assertThat(result.throughput() > 0, is(true));
+    }
+
+    @Test
+    public void reportsSampledViolationsAndErrors() throws Exception {
+        String spec = "{ \"url\": \"/echo\", \"request\": { \"method\": \"GET\" }, \"response\": { \"statusCode\": 200, \"header\": { \"Content-Type\": \"text/plain\" }, \"representation\": \"marco!\" } }";
+        RestSpec restSpec = new RestSpec("spec", new StringLoader(spec));
+        final AtomicInteger calls = new AtomicInteger();
+
+        RestSpecLoadTester.LoadResult result = new RestSpecLoadTester(1, 100).validatingEvery(10).run(restSpec, new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+                if (calls.incrementAndGet() == 50) {
+                    throw new IllegalStateException("boom");
+                }
+                response.setContentType("text/plain");
+                response.getOutputStream().print("polo!");
+            }
+        });
+
+        assertThat(result.requests, is(100L));
+        assertThat(result.errors, is(1L));
+        assertThat(result.validated, is(10L));
+        assertThat(result.violations, is(10L));
+        assertThat(result.failures.size(), is(10));
+        assertThat(result.failures.get(0), is("Response 0: The response representation should have been marco! but was polo!\n"));
+        assertThat(result.failures.get(5), is("Request 49 threw java.lang.IllegalStateException: boom"));
+    }
+
+    @Test
+    public void runsForAFixedDuration() throws Exception {
+        String spec = "{ \"url\": \"/echo\", \"request\": { \"method\": \"GET\" }, \"response\": { \"statusCode\": 200, \"header\": { \"Content-Type\": \"text/plain\" }, \"representation\": \"marco!\" } }";
+        RestSpec restSpec = new RestSpec("spec", new StringLoader(spec));
+
+        RestSpecLoadTester.LoadResult result = RestSpecLoadTester.forDuration(2, 100, TimeUnit.MILLISECONDS)
+                .run(restSpec, new FakeHttpServlet("text/plain", "marco!"));
+
+        result.assertNoViolations();
+        assertThat(result.requests > 0, is(true));
+        assertThat(result.nanos >= TimeUnit.MILLISECONDS.toNanos(100), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsANegativeNumberOfIterations() {
+        new RestSpecLoadTester(1, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsANegativeSamplingInterval() {
+        new RestSpecLoadTester(1, 10).validatingEvery(-1);
+    }
+
+    @Test
+    public void histogramPercentilesStayWithinTheirBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long x = 1; x <= 1000; x++) {
+            histogram.record(x * 1000);
+        }
+
+        assertThat(histogram.count(), is(1000L));
+        assertThat(histogram.max(), is(1000000L));
+        assertThat(Math.abs(histogram.percentile(50) - 500000) <= 500000 / 32, is(true));
+        assertThat(Math.abs(histogram.percentile(99) - 990000) <= 990000 / 32, is(true));
+        assertThat(histogram.percentile(100), is(1000000L));
+    }
+}
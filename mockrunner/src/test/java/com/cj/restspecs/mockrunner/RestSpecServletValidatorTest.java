@@ -38,7 +38,10 @@
 package com.cj.restspecs.mockrunner;
 
 import cj.restspecs.core.RestSpec;
+import cj.restspecs.core.RestSpecCatalog;
+import cj.restspecs.core.io.FilesystemLoader;
 import cj.restspecs.core.io.StringLoader;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
@@ -47,8 +50,11 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.assertThat;
@@ -96,6 +102,100 @@ public class RestSpecServletValidatorTest {
         assertThat(validationResult.violations.get(0).description, is("actual  : Failed to normalize JSON: '{\n   \"a'"));
     }
 
+    @Test
+    public void jsonFieldOrderDoesNotMatter() throws Exception {
+        String spec = "{ \"url\": \"/echo\", \"request\": { \"method\": \"GET\" }, \"response\": { \"statusCode\": 200, \"header\": { \"Content-Type\": \"application/json\" }, \"representation\": \"{ \\\"a\\\": 1, \\\"b\\\": { \\\"c\\\": [true, null], \\\"d\\\": \\\"e\\\" } }\" } }";
+
+        RestSpec restSpec = new RestSpec("spec", new StringLoader(spec));
+        HttpServlet testSubject = new FakeHttpServlet("application/json", "{\"b\": {\"d\": \"e\", \"c\": [true, null]}, \"a\": 1}");
+
+        new RestSpecServletValidator().validate(restSpec, testSubject).assertNoViolations();
+    }
+
+    @Test
+    public void jsonDifferencesAreReportedByPath() throws Exception {
+        String spec = "{ \"url\": \"/echo\", \"request\": { \"method\": \"GET\" }, \"response\": { \"statusCode\": 200, \"header\": { \"Content-Type\": \"application/json\" }, \"representation\": \"{ \\\"items\\\": [ {}, { \\\"unit price\\\": 12.5 } ] }\" } }";
+
+        RestSpec restSpec = new RestSpec("spec", new StringLoader(spec));
+        HttpServlet testSubject = new FakeHttpServlet("application/json", "{ \"items\": [ {}, { \"unit price\": 13 } ] }");
+
+        RestSpecServletValidator.ValidationResult validationResult = new RestSpecServletValidator().validate(restSpec, testSubject);
+        assertThat(validationResult.violations.size(), is(1));
+        assertThat(validationResult.violations.get(0).description, is("The response representation differs from the spec at $.items[1]['unit price']: expected 12.5 but was 13"));
+    }
+
+    @Test
+    public void missingAndUnexpectedJsonFieldsAreReported() throws Exception {
+        String spec = "{ \"url\": \"/echo\", \"request\": { \"method\": \"GET\" }, \"response\": { \"statusCode\": 200, \"header\": { \"Content-Type\": \"application/json\" }, \"representation\": \"{ \\\"a\\\": { \\\"b\\\": 1 } }\" } }";
+        RestSpec restSpec = new RestSpec("spec", new StringLoader(spec));
+
+        RestSpecServletValidator.ValidationResult missing = new RestSpecServletValidator().validate(restSpec, new FakeHttpServlet("application/json", "{ \"a\": { \"c\": 1 } }"));
+        RestSpecServletValidator.ValidationResult unexpected = new RestSpecServletValidator().validate(restSpec, new FakeHttpServlet("application/json", "{ \"a\": { \"b\": 1, \"c\": 1 } }"));
+
+        assertThat(missing.violations.get(0).description, is("The response representation differs from the spec at $.a: expected a field named 'b' but there was none"));
+        assertThat(unexpected.violations.get(0).description, is("The response representation differs from the spec at $.a: did not expect a field named 'c'"));
+    }
+
+    @Test
+    public void expectedJsonIsParsedOncePerContents() throws Exception {
+        File root = File.createTempFile("expected", ".dir");
+        FileUtils.forceDelete(root);
+        try {
+            FileUtils.write(new File(root, "a.spec.json"), "{ \"url\": \"/echo\", \"request\": { \"method\": \"GET\" }, \"response\": { \"statusCode\": 200, \"header\": { \"Content-Type\": \"application/json\" }, \"representation-ref\": \"/a.json\" } }");
+            FileUtils.write(new File(root, "a.json"), "{ \"age\": 18 }");
+            ExpectedRepresentations expected = new ExpectedRepresentations(1024 * 1024);
+            RestSpecServletValidator validator = new RestSpecServletValidator(expected);
+            HttpServlet testSubject = new FakeHttpServlet("application/json", "{ \"age\": 18 }");
+
+            validator.validate(new RestSpec("/a.spec.json", new FilesystemLoader(root)), testSubject).assertNoViolations();
+            validator.validate(new RestSpec("/a.spec.json", new FilesystemLoader(root)), testSubject).assertNoViolations();
+            assertThat(expected.size(), is(1));
+
+            FileUtils.write(new File(root, "a.json"), "{ \"age\": 19 }");
+            RestSpecServletValidator.ValidationResult result = validator.validate(new RestSpec("/a.spec.json", new FilesystemLoader(root)), testSubject);
+            assertThat(result.violations.get(0).description, is("The response representation differs from the spec at $.age: expected 19 but was 18"));
+            assertThat(expected.size(), is(2));
+        } finally {
+            FileUtils.deleteDirectory(root);
+        }
+    }
+
+    @Test
+    public void validatesACatalogConcurrently() throws Exception {
+        File root = File.createTempFile("catalog", ".dir");
+        FileUtils.forceDelete(root);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            StringBuilder catalog = new StringBuilder();
+            for (int x = 0; x < 20; x++) {
+                FileUtils.write(new File(root, "specs/echo" + x + ".spec.json"), "{ \"name\": \"echo" + x + "\", \"url\": \"/echo/" + x + "\", \"request\": { \"method\": \"GET\" }, " +
+                        "\"response\": { \"statusCode\": 200, \"header\": { \"Content-Type\": \"text/plain\" }, \"representation\": \"" + (x == 7 ? "seven" : "/echo/" + x) + "\" } }");
+                catalog.append("/specs/echo").append(x).append(".spec.json\n");
+            }
+            FileUtils.write(new File(root, "restspecs.rs"), catalog.toString());
+
+            RestSpecCatalog specs = RestSpecCatalog.read("/restspecs.rs", new FilesystemLoader(root));
+            RestSpecServletValidator.BatchResult result = new RestSpecServletValidator().validateAll(specs.specs(), new HttpServlet() {
+                @Override
+                protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                    resp.setContentType("text/plain");
+                    resp.getOutputStream().print(req.getRequestURI());
+                }
+            }, executor);
+
+            assertThat(specs.specNames().size(), is(20));
+            assertThat(result.outcomes.size(), is(20));
+            assertThat(result.outcomes.get(3).spec.name(), is("echo3"));
+            assertThat(result.failures().size(), is(1));
+            assertThat(result.failures().get(0).spec.name(), is("echo7"));
+            assertThat(result.failures().get(0).description(), is("The response representation should have been seven but was /echo/7\n"));
+            assertThat(result.outcomes.get(0).nanos > 0, is(true));
+        } finally {
+            executor.shutdown();
+            FileUtils.deleteDirectory(root);
+        }
+    }
+
     @Test
     public void requestWithMultivaluedParameterName() throws Exception {
         String multivaluedParameterSpecJson = "{ \"url\": \"/echo?message=hello&message=world\", \"request\": { \"method\": \"GET\" }, \"response\": { \"statusCode\": 200 } } }";
@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.cj.restspecs.server
+
+import java.util.concurrent._
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.mortbay.jetty.Connector
+import org.mortbay.jetty.bio.SocketConnector
+import org.mortbay.jetty.nio.SelectChannelConnector
+import org.mortbay.thread.ThreadPool
+
+/**
+ * How the server runs requests.  Pick one with -Drestspecs.server.mode:
+ *
+ *  - pool (the default): a non-blocking connector whose selector watches every open connection
+ *    and hands each request to a bounded pool of platform threads, sized with
+ *    -Drestspecs.server.threads and -Drestspecs.server.queue; work beyond both is refused.  Idle
+ *    keep-alive connections don't hold a thread; a thread is busy only while a handler runs.
+ *  - virtual: blocking connections, each on its own virtual thread.  Needs Java 21 or later.
+ *  - nio: the same connector and bounded queue as pool, but with one thread per core.  Handlers
+ *    still run, and block, on pool threads; responses are prebuilt, so they don't block for long
+ *    and a few threads can keep up.
+ */
+sealed trait ExecutionMode {
+  def name: String
+
+  def connector(port: Int): Connector
+
+  def threadPool(): ExecutorThreadPool
+}
+
+object ExecutionMode {
+  val DefaultThreads = 200
+  val DefaultQueue = 1000
+
+  case class BoundedPool(threads: Int, queue: Int) extends ExecutionMode {
+    require(threads >= 1, "The server needs at least 1 thread to run handlers on")
+
+    def name = s"pool($threads threads, queue $queue)"
+
+    def connector(port: Int) = selecting(port)
+
+    def threadPool() = bounded(threads, queue)
+  }
+
+  case object VirtualThreads extends ExecutionMode {
+    def name = "virtual"
+
+    def connector(port: Int) = blocking(port)
+
+    def threadPool() = {
+      val factory = try {
+        classOf[Executors].getMethod("newVirtualThreadPerTaskExecutor")
+      } catch {
+        case e: NoSuchMethodException =>
+          throw new RuntimeException("Virtual threads need Java 21 or later, but this is Java " + System.getProperty("java.version"))
+      }
+      new ExecutorThreadPool(factory.invoke(null).asInstanceOf[ExecutorService])
+    }
+  }
+
+  case class Nio(threads: Int, queue: Int) extends ExecutionMode {
+    require(threads >= 1, "The server needs at least 1 thread to run handlers on")
+
+    def name = s"nio($threads threads, queue $queue)"
+
+    def connector(port: Int) = selecting(port)
+
+    def threadPool() = bounded(threads, queue)
+  }
+
+  def supportsVirtualThreads: Boolean =
+    try {
+      classOf[Executors].getMethod("newVirtualThreadPerTaskExecutor")
+      true
+    } catch {
+      case e: NoSuchMethodException => false
+    }
+
+  def parse(name: String, threads: Int, queue: Int): ExecutionMode = name match {
+    case "pool" => BoundedPool(threads, queue)
+    case "virtual" => VirtualThreads
+    case "nio" => Nio(Runtime.getRuntime.availableProcessors(), queue)
+    case other => throw new RuntimeException(s"Unknown execution mode '$other'; expected pool, virtual or nio")
+  }
+
+  def fromSystemProperties: ExecutionMode =
+    parse(
+      System.getProperty("restspecs.server.mode", "pool"),
+      Integer.getInteger("restspecs.server.threads", DefaultThreads),
+      Integer.getInteger("restspecs.server.queue", DefaultQueue))
+
+  private def blocking(port: Int) = {
+    val connector = new SocketConnector()
+    connector.setPort(port)
+    connector
+  }
+
+  private def selecting(port: Int) = {
+    val connector = new SelectChannelConnector()
+    connector.setPort(port)
+    connector
+  }
+
+  // the connector's acceptor and selector each hold a thread for as long as it runs, so they
+  // get two on top of the handler threads
+  private def bounded(threads: Int, queue: Int) = {
+    val work = if (queue > 0) new ArrayBlockingQueue[Runnable](queue) else new SynchronousQueue[Runnable]()
+    new ExecutorThreadPool(new ThreadPoolExecutor(threads + 2, threads + 2, 60, TimeUnit.SECONDS, work, named("restspecs-server")))
+  }
+
+  private def named(prefix: String): ThreadFactory = new ThreadFactory {
+    private val count = new AtomicInteger()
+
+    def newThread(runnable: Runnable) = new Thread(runnable, prefix + "-" + count.incrementAndGet())
+  }
+}
+
+/**
+ * Lets Jetty dispatch onto any ExecutorService.  A job the executor refuses is reported back
+ * to Jetty, which drops the connection rather than letting it wait.
+ */
+class ExecutorThreadPool(val executor: ExecutorService) extends ThreadPool {
+  def dispatch(job: Runnable): Boolean =
+    try {
+      executor.execute(job)
+      true
+    } catch {
+      case e: RejectedExecutionException => false
+    }
+
+  def join(): Unit = executor.awaitTermination(Long.MaxValue, TimeUnit.MILLISECONDS)
+
+  def getThreads: Int = executor match {
+    case pool: ThreadPoolExecutor => pool.getPoolSize
+    case _ => 0
+  }
+
+  def getIdleThreads: Int = executor match {
+    case pool: ThreadPoolExecutor => pool.getPoolSize - pool.getActiveCount
+    case _ => 0
+  }
+
+  def isLowOnThreads: Boolean = executor match {
+    case pool: ThreadPoolExecutor => pool.getActiveCount >= pool.getMaximumPoolSize && pool.getQueue.remainingCapacity() == 0
+    case _ => false
+  }
+
+  def shutdown(): Unit = executor.shutdown()
+}
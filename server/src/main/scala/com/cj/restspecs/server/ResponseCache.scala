@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.cj.restspecs.server
+
+import java.io.InputStream
+import java.nio.ByteBuffer
+
+import cj.restspecs.core.CompiledRestSpec
+import cj.restspecs.core.io.FilesystemLoader
+import cj.restspecs.core.model.Representation
+import org.httpobjects.DSL.Bytes
+import org.httpobjects.header.{GenericHeaderField, HeaderField}
+import org.httpobjects.{Response, ResponseCode}
+
+import scala.collection.JavaConversions._
+
+/**
+ * A spec's response worked out once at load time, so that serving it is just a matter of
+ * writing it out.
+ */
+class PrebuiltResponse(code: ResponseCode, headers: Array[HeaderField], contentType: String, val body: PrebuiltResponse.Body) {
+  def toResponse: Response = new Response(code, body.representation(contentType), headers: _*)
+}
+
+object PrebuiltResponse {
+  sealed trait Body {
+    def representation(contentType: String): org.httpobjects.Representation
+  }
+
+  case object NoBody extends Body {
+    def representation(contentType: String) = null
+  }
+
+  /** The body as heap bytes. */
+  case class HeapBody(bytes: Array[Byte]) extends Body {
+    def representation(contentType: String) = Bytes(contentType, bytes)
+  }
+
+  /** The body as a buffer mapped from its file, which costs page cache rather than heap. */
+  case class MappedBody(buffer: ByteBuffer) extends Body {
+    def representation(contentType: String) = Bytes(contentType, new ByteBufferInputStream(buffer.duplicate()))
+  }
+
+  /** A body that didn't fit the cache, read from the spec's loader on every hit. */
+  case class LoadedBody(source: Representation) extends Body {
+    def representation(contentType: String) = Bytes(contentType, source.data())
+  }
+
+  private class ByteBufferInputStream(buffer: ByteBuffer) extends InputStream {
+    override def read(): Int = if (buffer.hasRemaining) buffer.get() & 0xff else -1
+
+    override def read(b: Array[Byte], off: Int, len: Int): Int = {
+      if (len == 0) return 0
+      if (!buffer.hasRemaining) return -1
+      val n = math.min(len, buffer.remaining())
+      buffer.get(b, off, n)
+      n
+    }
+
+    override def available(): Int = buffer.remaining()
+  }
+}
+
+/**
+ * Builds a PrebuiltResponse per spec.  Bodies are copied onto the heap until maxHeapBytes
+ * have been used; bodies the loader memory-mapped are kept as mapped buffers, and the rest are
+ * read from disk whenever they are served.  Body sizes are checked before anything is read, so
+ * a body that won't fit isn't loaded at startup.
+ *
+ * maxHeapBytes bounds heap copies only.  Mapped bodies live in the page cache rather than the
+ * heap, so they aren't limited, but summary reports how many bytes they take.
+ *
+ * @param mappingThreshold the size at which the spec's loader maps files rather than reading
+ *                         them, as set with FilesystemLoader's constructor
+ */
+class ResponseCache(val maxHeapBytes: Long, val mappingThreshold: Long = FilesystemLoader.DEFAULT_MAPPING_THRESHOLD) {
+  import PrebuiltResponse._
+
+  private var responses = 0
+  private var heapBytes = 0L
+  private var mappedBytes = 0L
+  private var uncached = 0
+
+  def prebuild(spec: CompiledRestSpec): PrebuiltResponse = {
+    val headers: Array[HeaderField] = spec.responseHeader().fieldNames().flatMap { name =>
+      spec.responseHeader().fieldsNamed(name).map { value =>
+        new GenericHeaderField(name, value)
+      }
+    }.toArray
+
+    val representation = spec.responseRepresentation()
+    val body = if (representation == null) NoBody else bodyOf(representation)
+    val contentType = if (representation == null) "" else representation.contentType()
+
+    responses += 1
+    new PrebuiltResponse(ResponseCode.forCode(spec.statusCode()), headers, contentType, body)
+  }
+
+  private def bodyOf(representation: Representation): Body = {
+    val size = representation.size()
+    if (size >= 0 && size < mappingThreshold && heapBytes + size > maxHeapBytes) {
+      uncached += 1
+      return LoadedBody(representation)
+    }
+
+    val buffer = representation.byteBuffer()
+    if (buffer == null) {
+      NoBody
+    } else if (buffer.isDirect) {
+      mappedBytes += buffer.remaining()
+      MappedBody(buffer)
+    } else if (heapBytes + buffer.remaining() <= maxHeapBytes) {
+      val bytes = new Array[Byte](buffer.remaining())
+      buffer.duplicate().get(bytes)
+      heapBytes += bytes.length
+      HeapBody(bytes)
+    } else {
+      uncached += 1
+      LoadedBody(representation)
+    }
+  }
+
+  def summary: String =
+    s"Response cache: $responses responses, $heapBytes of $maxHeapBytes heap bytes used, $mappedBytes bytes mapped, $uncached bodies read from disk on each request"
+}
+
+object ResponseCache {
+  val DefaultMaxHeapBytes: Long = 64L * 1024 * 1024
+
+  /** The limit set with -Drestspecs.server.responseCacheBytes, or the default. */
+  def fromSystemProperties: ResponseCache =
+    new ResponseCache(java.lang.Long.getLong("restspecs.server.responseCacheBytes", DefaultMaxHeapBytes))
+}
@@ -38,22 +38,19 @@
 package com.cj.restspecs.server
 
 import org.httpobjects.jetty.HttpObjectsJettyHandler
+import org.mortbay.jetty.Server
 import org.httpobjects.HttpObject
 import org.httpobjects.Request
 import org.httpobjects.DSL._
 import java.io.{File => Path}
-import cj.restspecs.core.RestSpec
+import cj.restspecs.core.{RepresentationCache, RestSpec}
 import cj.restspecs.core.io.FilesystemLoader
-import org.httpobjects.Response
-import org.httpobjects.ResponseCode
 import scala.collection.JavaConversions._
-import org.httpobjects.header.GenericHeaderField
 import java.io.FileInputStream
-import java.net.URL
 
 object RestSpecServer {
 
-  private def findSpecs(dir: Path): Seq[Path] = {
+  private[server] def findSpecs(dir: Path): Seq[Path] = {
     val results = dir.listFiles().toSeq.map { child =>
       if (child.isDirectory) {
         findSpecs(child)
@@ -74,7 +71,17 @@ object RestSpecServer {
     if (aStr.startsWith(bStr)) aStr.substring(bStr.length()) else aStr
   }
 
-  private def stripVars(t: String) = t.replaceAll("\\{[a-z|A-Z]*\\}", "VARIABLE")
+  private[server] def stripVars(t: String) = t.replaceAll("\\{[a-z|A-Z]*\\}", "VARIABLE")
+
+  /**
+   * A server that has been started; stop it to release its port and threads.
+   */
+  class RunningServer(val server: Server, val threadPool: ExecutorThreadPool, val mode: ExecutionMode) {
+    def stop() {
+      server.stop()
+      threadPool.shutdown()
+    }
+  }
 
   def main(args: Array[String]) {
     val currentDirectory = new Path(System.getProperty("user.dir"))
@@ -83,19 +90,27 @@ object RestSpecServer {
 
     val rootPath = pathOption.getOrElse(currentDirectory)
 
+    serve(rootPath, Integer.getInteger("restspecs.server.port", 9933), ExecutionMode.fromSystemProperties).server.join()
+  }
+
+  def serve(rootPath: Path, port: Int, mode: ExecutionMode): RunningServer = {
     val loader = new FilesystemLoader(rootPath)
-    val specFiles = findSpecs(rootPath)
+    val specFiles = findSpecs(rootPath).sortBy(_.getAbsolutePath)
 
     case class SpecWithFilesystemLocation(filesystemLocation: String, spec: RestSpec)
 
     val specFilePathsAndSpecs = specFiles.map { pathToFile =>
       val specPath = relativePath(pathToFile, rootPath)
-      SpecWithFilesystemLocation(specPath, new RestSpec(specPath, loader))
+      SpecWithFilesystemLocation(specPath, new RestSpec(specPath, loader, RepresentationCache.none()))
     }
 
     val specs = specFilePathsAndSpecs.map(_.spec)
 
+    val responses = ResponseCache.fromSystemProperties
+    val router = new SpecRouter(specs.map(_.compile()), responses)
+
     println(s"Serving ${specs.length} specs")
+    println(responses.summary)
 
     def createHelpPage(httpMethod: String, req: Request) = {
       val query = req.query.toString
@@ -124,45 +139,9 @@ object RestSpecServer {
     }
 
     def respond(httpMethod: String, req: Request) = {
-      val query = req.query.toString
-      val path = req.path.toString
-
-
-      val methodAndPathAndQueryMatches = specs.filter { candidate =>
-
-
-        val p = new URL("http://" + stripVars(candidate.path())).getPath
-        val pathsMatch = path == p
-        val queriesMatch = stripVars(query) == stripVars(candidate.queryString)
-        val methodsMatch = candidate.request.method == httpMethod
-
-        methodsMatch && pathsMatch && queriesMatch
-      }
-
-      val numMatches = methodAndPathAndQueryMatches.length
-      if (methodAndPathAndQueryMatches.length > 1) println(s"WARNING: There are $numMatches matches for $path")
-
-      val maybeSpec = methodAndPathAndQueryMatches.headOption
-
-      maybeSpec match {
+      router.route(httpMethod, req.path.toString, req.query.toString) match {
         case None => createHelpPage(httpMethod, req)
-        case Some(spec) =>
-
-          val headers = spec.response().header().fieldNames().flatMap { name =>
-            spec.response().header().fieldsNamed(name).map { value =>
-              new GenericHeaderField(name, value)
-            }
-          }
-          val representation = spec.response().representation() match {
-            case null => null
-            case specRepresentation => {
-              val contentType = spec.response().header().fieldNames().find(_ == "Content-Type").getOrElse("")
-              Bytes(contentType, specRepresentation.data())
-            }
-
-          }
-
-          new Response(ResponseCode.forCode(spec.response().statusCode()), representation, headers: _*)
+        case Some(response) => response.toResponse
       }
     }
 
@@ -176,7 +155,7 @@ object RestSpecServer {
       override def delete(req: Request) = respond("DELETE", req)
     }
 
-    HttpObjectsJettyHandler.launchServer(9933,
+    val handler = new HttpObjectsJettyHandler(
       new RequestGlue("/"),
       new HttpObject("/_specs/{specPath*}") {
         override def get(req: Request) = {
@@ -191,5 +170,20 @@ object RestSpecServer {
       },
       new RequestGlue("/{resource*}")
     )
+
+    val threadPool = mode.threadPool()
+    val server = new Server()
+    server.setThreadPool(threadPool)
+    server.setConnectors(Array(mode.connector(port)))
+    server.setHandler(handler)
+    try {
+      server.start()
+    } catch {
+      case e: Exception =>
+        threadPool.shutdown()
+        throw new RuntimeException(e)
+    }
+    println(s"Listening on port $port in ${mode.name} mode")
+    new RunningServer(server, threadPool, mode)
   }
 }
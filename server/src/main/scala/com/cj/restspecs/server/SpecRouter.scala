@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.cj.restspecs.server
+
+import cj.restspecs.core.{CompiledRestSpec, RouteTable}
+
+/**
+ * Picks the spec that answers a request, using the same routes the validator checks for
+ * conflicts.  A placeholder such as '{id}' matches any non-empty segment, not just the
+ * 'VARIABLE' that the help page's links put there, and a literal segment or query value
+ * beats a placeholder.
+ */
+class SpecRouter(specs: Seq[CompiledRestSpec], responses: ResponseCache) {
+  import SpecRouter._
+
+  private val routes = new RouteTable[Candidate]
+
+  specs.foreach { spec =>
+    val candidate = Candidate(spec, responses.prebuild(spec))
+    val existing = routes.add(spec.method, spec.url, candidate)
+    if (existing != null) {
+      println(s"WARNING: ${spec.name} declares the same route as ${existing.spec.name}, so it will never be served")
+    }
+  }
+
+  /** The response of the most specific spec for the request, if any spec serves it. */
+  def route(httpMethod: String, path: String, query: String): Option[PrebuiltResponse] =
+    Option(routes.`match`(httpMethod, url(path, query))).map(_.response)
+}
+
+object SpecRouter {
+  private case class Candidate(spec: CompiledRestSpec, response: PrebuiltResponse)
+
+  /** Joins a path and a query that may or may not start with '?'. */
+  private[server] def url(path: String, query: String): String = {
+    if (query == null || query.isEmpty) path
+    else if (query.startsWith("?")) path + query
+    else path + "?" + query
+  }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.cj.restspecs.server
+
+import java.util.concurrent._
+
+import org.junit.Assert._
+import org.junit.Test
+
+class ExecutionModeTest {
+
+  @Test
+  def parsesEachModeByName() {
+    assertEquals(ExecutionMode.BoundedPool(8, 16), ExecutionMode.parse("pool", 8, 16))
+    assertEquals(ExecutionMode.VirtualThreads, ExecutionMode.parse("virtual", 8, 16))
+    assertEquals(ExecutionMode.Nio(Runtime.getRuntime.availableProcessors(), 16), ExecutionMode.parse("nio", 8, 16))
+  }
+
+  @Test
+  def rejectsUnknownModes() {
+    try {
+      ExecutionMode.parse("async", 8, 16)
+      fail("expected an exception")
+    } catch {
+      case e: RuntimeException => assertEquals("Unknown execution mode 'async'; expected pool, virtual or nio", e.getMessage)
+    }
+  }
+
+  @Test
+  def poolsNeedAThreadForHandlers() {
+    try {
+      ExecutionMode.BoundedPool(0, 16)
+      fail("expected an exception")
+    } catch {
+      case e: IllegalArgumentException => assertTrue(e.getMessage, e.getMessage.contains("at least 1 thread"))
+    }
+  }
+
+  @Test
+  def poolAndNioBoundTheirQueues() {
+    for (mode <- Seq(ExecutionMode.BoundedPool(1, 16), ExecutionMode.Nio(1, 16))) {
+      val pool = mode.threadPool()
+      try {
+        val executor = pool.executor.asInstanceOf[ThreadPoolExecutor]
+        assertEquals(3, executor.getMaximumPoolSize)
+        assertEquals(16, executor.getQueue.remainingCapacity())
+      } finally {
+        pool.shutdown()
+      }
+    }
+  }
+
+  @Test
+  def dispatchRunsJobsOnTheExecutor() {
+    val pool = ExecutionMode.BoundedPool(2, 0).threadPool()
+    try {
+      val ran = new CountDownLatch(1)
+      assertTrue(pool.dispatch(new Runnable {
+        def run() = ran.countDown()
+      }))
+      assertTrue(ran.await(10, TimeUnit.SECONDS))
+      assertEquals(1, pool.getThreads)
+    } finally {
+      pool.shutdown()
+    }
+  }
+
+  @Test
+  def dispatchReportsJobsTheExecutorRefuses() {
+    val executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new SynchronousQueue[Runnable]())
+    val pool = new ExecutorThreadPool(executor)
+    val started = new CountDownLatch(1)
+    val release = new CountDownLatch(1)
+    try {
+      assertTrue(pool.dispatch(new Runnable {
+        def run() {
+          started.countDown()
+          release.await()
+        }
+      }))
+      assertTrue(started.await(10, TimeUnit.SECONDS))
+
+      assertFalse(pool.dispatch(new Runnable {
+        def run() = ()
+      }))
+      assertTrue(pool.isLowOnThreads)
+      assertEquals(0, pool.getIdleThreads)
+    } finally {
+      release.countDown()
+      pool.shutdown()
+    }
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS))
+  }
+}
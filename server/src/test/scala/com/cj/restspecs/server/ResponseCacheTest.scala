@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.cj.restspecs.server
+
+import java.io.{ByteArrayOutputStream, File, InputStream}
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.Files
+
+import cj.restspecs.core.io.{FilesystemLoader, Loader, MetadataLoader}
+import cj.restspecs.core.{RepresentationCache, RestSpec}
+import com.cj.restspecs.server.PrebuiltResponse._
+import org.junit.Assert._
+import org.junit.{After, Before, Test}
+
+class ResponseCacheTest {
+  private var root: File = _
+
+  /** Describes files without mapping them, and counts how often it reads one. */
+  private class CountingLoader extends MetadataLoader {
+    private val files = new FilesystemLoader(root)
+    var loads = 0
+
+    def load(name: String): InputStream = {
+      loads += 1
+      files.load(name)
+    }
+
+    def exists(name: String) = files.exists(name)
+
+    def size(name: String) = files.size(name)
+
+    def lastModified(name: String) = files.lastModified(name)
+
+    def digest(name: String) = files.digest(name)
+  }
+
+  @Before
+  def setUp() {
+    root = Files.createTempDirectory("response-cache").toFile
+  }
+
+  @After
+  def tearDown() {
+    root.listFiles().foreach(_.delete())
+    root.delete()
+  }
+
+  private def write(name: String, content: String) {
+    Files.write(new File(root, name).toPath, content.getBytes(UTF_8))
+  }
+
+  private def spec(name: String, response: String, loader: Loader) = {
+    write(name + ".spec.json", s"""{ "name": "$name", "url": "/$name", "request": { "method": "GET" }, "response": $response }""")
+    new RestSpec("/" + name + ".spec.json", loader, RepresentationCache.none()).compile()
+  }
+
+  private def withBody(name: String, body: String, loader: Loader) = {
+    write(name + ".txt", body)
+    spec(name, s"""{ "statusCode": 200, "header": { "Content-Type": "text/plain" }, "representation-ref": "/$name.txt" }""", loader)
+  }
+
+  private def served(response: PrebuiltResponse): String = {
+    val out = new ByteArrayOutputStream()
+    response.toResponse.representation().write(out)
+    new String(out.toByteArray, UTF_8)
+  }
+
+  @Test
+  def bodiesAreCopiedOntoTheHeapUntilTheLimit() {
+    val loader = new CountingLoader
+    val cache = new ResponseCache(15)
+
+    val first = cache.prebuild(withBody("first", "0123456789", loader))
+    val second = cache.prebuild(withBody("second", "abcdefghij", loader))
+
+    assertTrue(first.body.isInstanceOf[HeapBody])
+    assertTrue(second.body.isInstanceOf[LoadedBody])
+    assertEquals("the body over the limit isn't read at startup", 1, loader.loads)
+    assertEquals("0123456789", served(first))
+    assertEquals("abcdefghij", served(second))
+    assertEquals("abcdefghij", served(second))
+    assertEquals(3, loader.loads)
+  }
+
+  @Test
+  def mappedBodiesAreKeptMappedAndCounted() {
+    val cache = new ResponseCache(0, 8)
+
+    val response = cache.prebuild(withBody("mapped", "0123456789", new FilesystemLoader(root, 8)))
+
+    assertTrue(response.body.isInstanceOf[MappedBody])
+    assertEquals("0123456789", served(response))
+    assertEquals("0123456789", served(response))
+    assertTrue(cache.summary, cache.summary.contains("0 of 0 heap bytes used, 10 bytes mapped"))
+  }
+
+  @Test
+  def responsesWithoutABodyHaveNone() {
+    val response = new ResponseCache(15).prebuild(spec("empty", """{ "statusCode": 204 }""", new CountingLoader))
+
+    assertEquals(NoBody, response.body)
+    assertNull(response.toResponse.representation())
+  }
+
+  @Test
+  def bodiesOfUnknownSizeAreCheckedOnceRead() {
+    val loader = new Loader {
+      val files = new FilesystemLoader(root)
+
+      def load(name: String) = files.load(name)
+    }
+    val cache = new ResponseCache(5)
+
+    val response = cache.prebuild(withBody("unknown", "0123456789", loader))
+
+    assertTrue(response.body.isInstanceOf[LoadedBody])
+    assertEquals("0123456789", served(response))
+    assertTrue(cache.summary, cache.summary.contains("1 bodies read from disk"))
+  }
+}
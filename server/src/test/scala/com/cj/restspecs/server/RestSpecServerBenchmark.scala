@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.cj.restspecs.server
+
+import java.io.{File => Path, InputStream}
+import java.net.{HttpURLConnection, URL}
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.{CountDownLatch, TimeUnit}
+
+import cj.restspecs.core.RestSpec
+import cj.restspecs.core.io.FilesystemLoader
+
+/**
+ * Serves a directory of specs in each execution mode in turn and hammers it with concurrent
+ * GETs for every spec that has one, printing throughput and latency percentiles per mode.  It
+ * lives with the tests so it isn't shipped in the server jar; run it from the server module with
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.cj.restspecs.server.RestSpecServerBenchmark -Dexec.args=specDirectory
+ *
+ * Tune it with -Drestspecs.benchmark.clients (default 64), -Drestspecs.benchmark.seconds
+ * (default 10), -Drestspecs.benchmark.modes (default pool,nio,virtual) and
+ * -Drestspecs.benchmark.port (default 9934).  The virtual mode is skipped on runtimes that
+ * don't have virtual threads.  A response whose status isn't the one its spec declares, such
+ * as the help page served when nothing matches, counts as an error rather than a request.
+ */
+object RestSpecServerBenchmark {
+
+  case class Result(mode: String, requests: Long, errors: Long, nanos: Long, latencies: Array[Long]) {
+    private def percentile(percent: Double) =
+      if (latencies.isEmpty) 0L else latencies(math.min(latencies.length - 1, math.ceil(latencies.length * percent / 100).toInt - 1).max(0))
+
+    private def millis(nanos: Long) = nanos / 1e6
+
+    def summary: String =
+      f"$mode%-32s ${requests / (nanos / 1e9)}%10.0f req/s   p50 ${millis(percentile(50))}%8.3f ms   p99 ${millis(percentile(99))}%8.3f ms   max ${millis(percentile(100))}%8.3f ms   $errors errors"
+  }
+
+  def main(args: Array[String]) {
+    val rootPath = new Path(if (args.length > 0) args(0) else System.getProperty("user.dir"))
+    val clients = Integer.getInteger("restspecs.benchmark.clients", 64).intValue
+    val seconds = Integer.getInteger("restspecs.benchmark.seconds", 10).intValue
+    val port = Integer.getInteger("restspecs.benchmark.port", 9934).intValue
+    val modeNames = System.getProperty("restspecs.benchmark.modes", "pool,nio,virtual").split(",").map(_.trim).toSeq
+
+    val targets = getTargets(rootPath)
+    if (targets.isEmpty) {
+      throw new RuntimeException(s"There are no GET specs under $rootPath to benchmark with")
+    }
+    println(s"Benchmarking ${targets.length} GET specs with $clients clients for $seconds seconds per mode")
+
+    val results = modeNames.flatMap { name =>
+      if (name == "virtual" && !ExecutionMode.supportsVirtualThreads) {
+        println(s"Skipping virtual: Java ${System.getProperty("java.version")} has no virtual threads")
+        None
+      } else {
+        val mode = ExecutionMode.parse(name, ExecutionMode.DefaultThreads, ExecutionMode.DefaultQueue)
+        val running = RestSpecServer.serve(rootPath, port, mode)
+        try {
+          run(port, targets, clients, 1)
+          Some(run(port, targets, clients, seconds).copy(mode = mode.name))
+        } finally {
+          running.stop()
+        }
+      }
+    }
+
+    println()
+    results.foreach(result => println(result.summary))
+  }
+
+  case class Target(path: String, statusCode: Int)
+
+  private def getTargets(rootPath: Path): Seq[Target] = {
+    val loader = new FilesystemLoader(rootPath)
+    val rootLength = rootPath.getAbsolutePath.length
+    RestSpecServer.findSpecs(rootPath).map(file => new RestSpec(file.getAbsolutePath.substring(rootLength), loader))
+      .filter(_.request.method == "GET")
+      .map(spec => Target(RestSpecServer.stripVars(spec.path), spec.response.statusCode))
+  }
+
+  private def run(port: Int, targets: Seq[Target], clients: Int, seconds: Int): Result = {
+    val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds)
+    val next = new AtomicLong()
+    val errors = new AtomicLong()
+    val done = new CountDownLatch(clients)
+    val latencies = Array.fill(clients)(new scala.collection.mutable.ArrayBuffer[Long]())
+    val buffer = new ThreadLocal[Array[Byte]] {
+      override def initialValue() = new Array[Byte](8192)
+    }
+
+    val start = System.nanoTime()
+    (0 until clients).foreach { client =>
+      new Thread(new Runnable {
+        def run() {
+          try {
+            while (System.nanoTime() < deadline) {
+              val target = targets((next.getAndIncrement() % targets.length).toInt)
+              val requestStart = System.nanoTime()
+              try {
+                val connection = new URL("http", "localhost", port, target.path).openConnection().asInstanceOf[HttpURLConnection]
+                val status = connection.getResponseCode
+                drain(if (status < 400) connection.getInputStream else connection.getErrorStream, buffer.get())
+                if (status == target.statusCode) {
+                  latencies(client) += System.nanoTime() - requestStart
+                } else {
+                  errors.incrementAndGet()
+                }
+              } catch {
+                case e: Exception => errors.incrementAndGet()
+              }
+            }
+          } finally {
+            done.countDown()
+          }
+        }
+      }, "restspecs-benchmark-" + client).start()
+    }
+    done.await()
+    val nanos = System.nanoTime() - start
+
+    val all = latencies.flatten.sorted
+    Result("", all.length, errors.get(), nanos, all)
+  }
+
+  private def drain(in: InputStream, buffer: Array[Byte]) {
+    if (in != null) {
+      try {
+        while (in.read(buffer) != -1) {}
+      } finally {
+        in.close()
+      }
+    }
+  }
+}
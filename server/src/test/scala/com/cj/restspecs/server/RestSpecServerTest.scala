@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.cj.restspecs.server
+
+import java.io.File
+import java.net.{HttpURLConnection, ServerSocket, URL}
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.Files
+
+import org.junit.Assert._
+import org.junit.{After, Before, Test}
+
+import scala.io.Source
+
+class RestSpecServerTest {
+  private var root: File = _
+  private var running: RestSpecServer.RunningServer = _
+  private var port: Int = _
+
+  @Before
+  def setUp() {
+    root = Files.createTempDirectory("restspec-server").toFile
+    val json = """{ "name": "user", "url": "/users/{id}", "request": { "method": "GET" },
+                 |  "response": { "statusCode": 200, "header": { "Content-Type": "text/plain" }, "representation": "a user" } }""".stripMargin
+    Files.write(new File(root, "user.spec.json").toPath, json.getBytes(UTF_8))
+
+    val socket = new ServerSocket(0)
+    port = socket.getLocalPort
+    socket.close()
+    running = RestSpecServer.serve(root, port, ExecutionMode.BoundedPool(4, 0))
+  }
+
+  @After
+  def tearDown() {
+    running.stop()
+    root.listFiles().foreach(_.delete())
+    root.delete()
+  }
+
+  private def get(path: String): (Int, String) = {
+    val connection = new URL(s"http://localhost:$port$path").openConnection().asInstanceOf[HttpURLConnection]
+    try {
+      val status = connection.getResponseCode
+      val in = if (status < 400) connection.getInputStream else connection.getErrorStream
+      (status, Source.fromInputStream(in, "UTF-8").mkString)
+    } finally {
+      connection.disconnect()
+    }
+  }
+
+  @Test
+  def servesTheMatchingSpec() {
+    assertEquals((200, "a user"), get("/users/42"))
+  }
+
+  @Test
+  def listsTheKnownSpecsWhenNothingMatches() {
+    val (status, body) = get("/orders/42")
+
+    assertEquals(500, status)
+    assertTrue(body, body.contains("NO SPEC FOUND MATCHING GET /orders/42"))
+    assertTrue(body, body.contains("/users/VARIABLE"))
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) Commission Junction Inc.
+ *
+ * This file is part of rest-specs.
+ *
+ * rest-specs is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ *
+ * rest-specs is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with rest-specs; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ *
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ */
+package com.cj.restspecs.server
+
+import java.io.{ByteArrayOutputStream, File}
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.Files
+
+import cj.restspecs.core.{RepresentationCache, RestSpec}
+import cj.restspecs.core.io.FilesystemLoader
+import org.junit.Assert._
+import org.junit.{After, Before, Test}
+
+class SpecRouterTest {
+  private var root: File = _
+  private var specs = Seq[RestSpec]()
+
+  @Before
+  def setUp() {
+    root = Files.createTempDirectory("spec-router").toFile
+  }
+
+  @After
+  def tearDown() {
+    root.listFiles().foreach(_.delete())
+    root.delete()
+  }
+
+  private def spec(name: String, method: String, url: String) {
+    val path = "/" + name + ".spec.json"
+    val json = s"""{ "name": "$name", "url": "$url", "request": { "method": "$method" },
+                  |  "response": { "statusCode": 200, "header": { "Content-Type": "text/plain" }, "representation": "$name" } }""".stripMargin
+    Files.write(new File(root, path).toPath, json.getBytes(UTF_8))
+    specs :+= new RestSpec(path, new FilesystemLoader(root), RepresentationCache.none())
+  }
+
+  private def router = new SpecRouter(specs.map(_.compile()), new ResponseCache(1024))
+
+  private def served(router: SpecRouter, method: String, path: String, query: String): String =
+    router.route(method, path, query) match {
+      case None => null
+      case Some(response) =>
+        val out = new ByteArrayOutputStream()
+        response.toResponse.representation().write(out)
+        new String(out.toByteArray, UTF_8)
+    }
+
+  @Test
+  def aLiteralSegmentBeatsAPlaceholder() {
+    spec("user", "GET", "/users/{id}")
+    spec("me", "GET", "/users/me")
+    val routes = router
+
+    assertEquals("me", served(routes, "GET", "/users/me", ""))
+    assertEquals("user", served(routes, "GET", "/users/42", ""))
+  }
+
+  @Test
+  def aPlaceholderMatchesAnySegmentNotJustVariable() {
+    spec("user", "GET", "/users/{id}")
+    val routes = router
+
+    assertEquals("user", served(routes, "GET", "/users/VARIABLE", ""))
+    assertEquals("user", served(routes, "GET", "/users/42", ""))
+    assertEquals(null, served(routes, "GET", "/users", ""))
+  }
+
+  @Test
+  def theRouteWithTheMostLiteralQueryValuesWins() {
+    spec("search", "GET", "/search?q={q}&page={p}")
+    spec("shoes", "GET", "/search?q=shoes&page={p}")
+    spec("first-page-of-shoes", "GET", "/search?q=shoes&page=1")
+    val routes = router
+
+    assertEquals("first-page-of-shoes", served(routes, "GET", "/search", "?page=1&q=shoes"))
+    assertEquals("shoes", served(routes, "GET", "/search", "?q=shoes&page=2"))
+    assertEquals("search", served(routes, "GET", "/search", "?q=boots&page=1"))
+    assertEquals(null, served(routes, "GET", "/search", "?q=boots"))
+  }
+
+  @Test
+  def theQueryMayOmitItsQuestionMark() {
+    spec("shoes", "GET", "/search?q=shoes")
+    val routes = router
+
+    assertEquals("shoes", served(routes, "GET", "/search", "q=shoes"))
+    assertEquals("shoes", served(routes, "GET", "/search", "?q=shoes"))
+    assertEquals("/search", SpecRouter.url("/search", ""))
+    assertEquals("/search", SpecRouter.url("/search", null))
+  }
+
+  @Test
+  def nothingIsServedForAnUnknownMethodOrPath() {
+    spec("user", "GET", "/users/{id}")
+    val routes = router
+
+    assertEquals(None, routes.route("DELETE", "/users/42", ""))
+    assertEquals(None, routes.route("GET", "/orders/42", ""))
+  }
+}